@@ -1,7 +1,10 @@
 package com.mohuia.better_looting.client;
 
 import com.mohuia.better_looting.BetterLooting;
+import com.mohuia.better_looting.client.core.LootScanner;
+import net.minecraft.server.packs.resources.ResourceManagerReloadListener;
 import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.client.event.RegisterClientReloadListenersEvent;
 import net.minecraftforge.client.event.RegisterKeyMappingsEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
@@ -32,6 +35,8 @@ public class ClientModEvents {
         event.register(KeyInit.PICKUP);
         event.register(KeyInit.OPEN_CONFIG);
         event.register(KeyInit.TOGGLE_AUTO);
+        event.register(KeyInit.CYCLE_SORT);
+        event.register(KeyInit.TOGGLE_MARK);
         event.register(KeyInit.SHOW_OVERLAY);
 
         // 滚动与选择相关
@@ -41,4 +46,17 @@ public class ClientModEvents {
         // 【修复】之前漏掉了修饰键的注册，必须注册后才能生效
         event.register(KeyInit.SCROLL_MODIFIER);
     }
+
+    /**
+     * 注册客户端资源重载监听
+     * <p>
+     * 资源包或语言切换后，物品名称与稀有度判定可能变化，需要让扫描器的分类缓存失效。
+     * </p>
+     *
+     * @param event 客户端重载监听注册事件
+     */
+    @SubscribeEvent
+    public static void onRegisterReloadListeners(RegisterClientReloadListenersEvent event) {
+        event.registerReloadListener((ResourceManagerReloadListener) resourceManager -> LootScanner.onResourcesReloaded());
+    }
 }
@@ -40,6 +40,9 @@ public class Constants {
     /** 新物品标签颜色 (橙色) */
     public static final int COLOR_NEW_LABEL = 0xFFFFAA00;
 
+    /** 多选标记颜色 (绿色)，绘制在行右侧 */
+    public static final int COLOR_MARKED = 0xFF2ECC71;
+
     // =========================================
     //               布局尺寸
     // =========================================
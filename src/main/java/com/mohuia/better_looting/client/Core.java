@@ -1,33 +1,45 @@
 package com.mohuia.better_looting.client;
 
+import com.mohuia.better_looting.client.core.InventoryIndex;
 import com.mohuia.better_looting.client.core.LootScanner;
+import com.mohuia.better_looting.client.core.PendingPickups;
 import com.mohuia.better_looting.client.core.PickupHandler;
+import com.mohuia.better_looting.client.core.PickupRequestBuilder;
+import com.mohuia.better_looting.client.core.RayBroadPhase;
+import com.mohuia.better_looting.client.core.ScanScheduler;
+import com.mohuia.better_looting.client.core.ScanSnapshot;
 import com.mohuia.better_looting.client.core.VisualItemEntry;
 import com.mohuia.better_looting.client.filter.FilterWhitelist;
 import com.mohuia.better_looting.config.Config;
 import com.mohuia.better_looting.config.ConfigScreen;
+import com.mohuia.better_looting.loot.LootProvider;
+import com.mohuia.better_looting.loot.LootProviders;
 import com.mohuia.better_looting.network.NetworkHandler;
 import com.mohuia.better_looting.network.C2S.PacketBatchPickup;
 import net.minecraft.ChatFormatting;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.screens.Screen;
+import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.network.chat.Component;
-import net.minecraft.world.entity.item.ItemEntity;
+import net.minecraft.world.entity.Entity;
 import net.minecraft.world.item.Item;
-import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.phys.HitResult;
+import net.minecraft.world.phys.Vec3;
 import net.minecraftforge.client.event.InputEvent;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
 
 /**
  * 客户端核心控制器 (单例模式).
  * 负责调度整个客户端的核心业务逻辑，基于 MVC 架构设计：
  *
- * Model (状态): 维护 {@link #nearbyItems} (周围掉落物) 和 {@link #selectedIndex} (选中状态)。
+ * Model (状态): 维护 {@link #snapshot} (周围掉落物) 和 {@link #selectedIndex} (选中状态)。
  * Controller (事件):监听 Tick 和 Input 事件，委托给 {@link LootScanner} 和 {@link PickupHandler} 处理。
  * @author Mohuia
  */
@@ -36,6 +48,9 @@ public class Core {
     /** 全局唯一实例 */
     public static final Core INSTANCE = new Core();
 
+    /** 可见窗口之后额外要求精确排序的行数 (覆盖渲染时多绘制的行与快速滚动) */
+    private static final int ORDER_MARGIN = 8;
+
     /** 物品过滤模式 */
     public enum FilterMode {
         /** 显示所有物品 */
@@ -49,9 +64,32 @@ public class Core {
     // =========================================
 
     private final PickupHandler pickupHandler = new PickupHandler();
+    /** 拾取请求缓冲 (复用，发送时不装箱、不创建中间集合) */
+    private final PickupRequestBuilder pickupRequest = new PickupRequestBuilder();
+    /** 背包物品存在性与容量索引 ("NEW" 标签查询、自动拾取的容量预判) */
+    private final InventoryIndex inventoryIndex = new InventoryIndex();
+    /** 已请求拾取、等待服务端确认的实体 (扫描时隐藏，后续请求不再包含) */
+    private final PendingPickups pendingPickups = new PendingPickups();
+    /** 可以加入拾取请求的实体：仍然可拾取且不在等待确认中 */
+    private final IntPredicate requestable = id -> !pendingPickups.contains(id) && isLiveLoot(id);
+    /** 拾取请求序号，服务端在确认中原样返回 */
+    private int nextRequestId = 0;
+    private final LootScanner scanner = new LootScanner();
+    private final ScanScheduler scanScheduler = new ScanScheduler();
+    /** 离开世界后是否已提交清空扫描 (只在进入无世界状态时提交一次) */
+    private boolean scanCleared = false;
+
+    /**
+     * 当前生效的扫描结果 (已合并渲染条目).
+     * 只在 tick 开始时由主线程切换，与选中状态同步更新；HUD 渲染同在主线程，读到的列表与选中索引始终一致。
+     */
+    private ScanSnapshot snapshot = ScanSnapshot.EMPTY;
+
+    /** 扫描增量监听器 (如 HUD 动画状态)，在客户端主线程回调 */
+    private final List<Consumer<ScanSnapshot>> scanListeners = new ArrayList<>();
 
-    /** 当前扫描到的周围掉落物实体列表 (已合并渲染条目) */
-    private List<VisualItemEntry> nearbyItems = new ArrayList<>();
+    /** HUD 激活条件 (由 Overlay 提供)，用于决定扫描频率 */
+    private BooleanSupplier activationCondition = () -> true;
 
     // =========================================
     //               UI 与 控制状态
@@ -61,6 +99,20 @@ public class Core {
     /** 目标滚动偏移量，用于实现平滑滚动动画 */
     private int targetScrollOffset = 0;
 
+    // 选中项与滚动视口顶部条目的分组 ID。快照更新后按 ID 重新定位索引，
+    // 上方条目出现或消失时高亮仍锁定在同一物品上
+    private int selectedEntryId = VisualItemEntry.NO_ID;
+    private int anchorEntryId = VisualItemEntry.NO_ID;
+    /** 上一次校验选中项时的可见行数；配置修改后 (配置界面保存或文件重载) 需要重新钳制滚动偏移 */
+    private double validatedRows = Double.NaN;
+
+    // 准星选取：射线粗筛结构 (快照变化后置空，下一帧按需重建) 与当前准星所指的实体
+    private RayBroadPhase rayBroadPhase = null;
+    private int targetEntityId = VisualItemEntry.NO_ID;
+
+    /** 多选拾取标记的条目 (按分组 ID 记录，重新扫描后仍标记在同一物品上；条目消失时移除) */
+    private final Set<Integer> markedEntryIds = new HashSet<>();
+
     private FilterMode filterMode = FilterMode.ALL;
     private boolean isAutoMode = false;
 
@@ -71,24 +123,45 @@ public class Core {
         // 在构造时注册 Forge 事件总线，确保 tick 和 input 事件被监听
         MinecraftForge.EVENT_BUS.register(this);
         FilterWhitelist.INSTANCE.init();
+        scanner.setExcluded(pendingPickups::contains);
     }
 
     // =========================================
     //               Public API (供 HUD 渲染使用)
     // =========================================
 
-    public List<VisualItemEntry> getNearbyItems() { return nearbyItems; }
+    /** 当前生效的快照 (不可变)；渲染端可按 {@link ScanSnapshot#getGeneration()} 判断内容是否变化 */
+    public ScanSnapshot getSnapshot() { return snapshot; }
+    /** 当前快照中的条目列表；需要多次访问时应先保存到局部变量，确保读到的是同一份列表 */
+    public List<VisualItemEntry> getNearbyItems() { return snapshot.getEntries(); }
     public int getSelectedIndex() { return selectedIndex; }
     public int getTargetScrollOffset() { return targetScrollOffset; }
-    public boolean hasItems() { return !nearbyItems.isEmpty(); }
+    public boolean hasItems() { return !snapshot.getEntries().isEmpty(); }
     public FilterMode getFilterMode() { return filterMode; }
     public boolean isAutoMode() { return isAutoMode; }
+    /** 条目是否被标记为多选拾取 */
+    public boolean isMarked(VisualItemEntry entry) { return markedEntryIds.contains(entry.getEntryId()); }
+
+    /**
+     * 注册快照监听器.
+     * 每次取走新快照时在客户端主线程回调；快照的增量与变化掩码均相对上一次回调，
+     * 用于让派生状态 (如条目动画、渲染缓存) 原地同步，而非每帧对比整个列表。
+     */
+    public void addScanListener(Consumer<ScanSnapshot> listener) {
+        scanListeners.add(listener);
+    }
+
+    /**
+     * 设置 HUD 激活条件.
+     * 条件不满足且未开启自动拾取时，扫描会被 {@link ScanScheduler} 降频。
+     */
+    public void setActivationCondition(BooleanSupplier condition) {
+        this.activationCondition = condition;
+    }
 
     /**
      * 检查玩家背包中是否含有指定物品.
-     *
-     * 直接遍历背包而非使用缓存，避免了同步问题。
-     * 由于客户端背包槽位较少，此操作性能开销极低。
+     * 查询 {@link InventoryIndex}，背包内容变化时才重建，每次查询为 O(1)。
      *
      * @param item 目标物品
      * @return 如果背包中存在该物品则返回 true
@@ -96,14 +169,8 @@ public class Core {
     public boolean isItemInInventory(Item item) {
         Minecraft mc = Minecraft.getInstance();
         if (mc.player == null) return false;
-
-        for (int i = 0; i < mc.player.getInventory().getContainerSize(); i++) {
-            ItemStack stack = mc.player.getInventory().getItem(i);
-            if (!stack.isEmpty() && stack.getItem() == item) {
-                return true;
-            }
-        }
-        return false;
+        inventoryIndex.sync(mc.player);
+        return inventoryIndex.contains(item);
     }
 
     /**
@@ -136,36 +203,100 @@ public class Core {
     public void onClientTick(TickEvent.ClientTickEvent event) {
         if (event.phase != TickEvent.Phase.END) return;
 
+        // 0. 取走后台线程发布的新快照，分发增量并按 ID 重新定位选中项 (期间发布的多份快照的增量已由扫描器合并)
+        ScanSnapshot latest = scanner.poll();
+        if (latest != null) {
+            snapshot = latest;
+            rayBroadPhase = null;
+            for (Consumer<ScanSnapshot> listener : scanListeners) listener.accept(latest);
+            // 仅数量变化时各条目位置不变，无需重新定位
+            if (latest.hasChanged(ScanSnapshot.CHANGE_ORDER)) resolveSelection();
+            if (latest.hasChanged(ScanSnapshot.CHANGE_MEMBERSHIP)) pruneMarks();
+        }
+        if (Config.Baked.visibleRows != validatedRows) validateSelection();
+
         Minecraft mc = Minecraft.getInstance();
         if (mc.player == null || mc.level == null) {
-            nearbyItems.clear();
+            // 进入无世界状态时提交一次空输入，由后台清空扫描状态；后台忙碌时顺延到下一 tick
+            if (!scanCleared && scanner.submit(mc, this.filterMode, 0)) {
+                scanCleared = true;
+                pendingPickups.clear();
+            }
             return;
         }
+        scanCleared = false;
+
+        // 等待确认的拾取超时回滚后，需要重新扫描让实体回到列表
+        if (pendingPickups.tick()) scanScheduler.requestImmediate();
 
         // 避免在配置界面操作时触发游戏内逻辑
         if (mc.screen instanceof ConfigScreen) return;
 
-        // 1. 执行扫描
-        this.nearbyItems = LootScanner.scan(mc, this.filterMode);
+        // 1. 按调度策略提交增量扫描 (HUD 隐藏或打开界面时降频/暂停)；后台仍在处理上一次扫描时顺延到下一 tick
+        if (scanScheduler.tick(mc, activationCondition.getAsBoolean(), isAutoMode)
+                && !scanner.submit(mc, this.filterMode, getOrderedLimit())) {
+            scanScheduler.requestImmediate();
+        }
+
+        List<VisualItemEntry> nearbyItems = snapshot.getEntries();
 
         // 2. 处理自动拾取
         if (isAutoMode && !nearbyItems.isEmpty()) {
             if (pickupHandler.canAutoPickup()) {
-                List<ItemEntity> allEntities = new ArrayList<>();
-                for (VisualItemEntry entry : nearbyItems) {
-                    allEntities.addAll(entry.getSourceEntities());
-                }
-                sendBatchPickup(allEntities, true);
+                sendBatchPickup(nearbyItems, true);
             }
         } else {
             pickupHandler.resetAutoCooldown();
         }
 
-        // 3. 校验状态与处理输入
-        validateSelection();
+        // 3. 处理输入
         handleInputLogic();
     }
 
+    /**
+     * 准星选取 (每帧).
+     * 在渲染开始前用视线射线查找准星所指的掉落物，并选中其所在的行。
+     * 射线长度受方块遮挡限制，不会选中墙后的物品。
+     */
+    @SubscribeEvent
+    public void onRenderTick(TickEvent.RenderTickEvent event) {
+        if (event.phase != TickEvent.Phase.START) return;
+
+        Minecraft mc = Minecraft.getInstance();
+        if (!Config.Baked.crosshairTargeting || mc.player == null || mc.level == null
+                || mc.screen != null || snapshot.getEntries().isEmpty()) {
+            targetEntityId = VisualItemEntry.NO_ID;
+            return;
+        }
+
+        if (rayBroadPhase == null) rayBroadPhase = RayBroadPhase.build(snapshot.getEntries(), mc.level);
+
+        Vec3 eye = mc.player.getEyePosition(event.renderTickTime);
+        Vec3 look = mc.player.getViewVector(event.renderTickTime);
+        double range = PacketBatchPickup.MAX_PICKUP_DISTANCE;
+        if (mc.hitResult != null && mc.hitResult.getType() == HitResult.Type.BLOCK) {
+            range = Math.min(range, mc.hitResult.getLocation().distanceTo(eye));
+        }
+
+        targetEntityId = rayBroadPhase.raycast(eye.x, eye.y, eye.z, look.x, look.y, look.z, range);
+        if (targetEntityId == VisualItemEntry.NO_ID) return;
+
+        int index = snapshot.indexOfEntity(targetEntityId);
+        if (index >= 0 && index != selectedIndex) {
+            selectedIndex = index;
+            validateSelection();
+        }
+    }
+
+    /**
+     * 需要精确排序的条目数：选中项与滚动窗口之后再留一定余量.
+     * 更靠后的条目只保证排在窗口之后，滚动到该位置时由下一次扫描补齐排序。
+     */
+    private int getOrderedLimit() {
+        int visibleRows = (int) Math.ceil(Math.max(1.0, Config.Baked.visibleRows));
+        return Math.max(selectedIndex, targetScrollOffset) + visibleRows + ORDER_MARGIN;
+    }
+
     /**
      * 处理按键输入逻辑 (功能键切换、拾取操作、键盘滚动).
      */
@@ -174,23 +305,24 @@ public class Core {
         while (KeyInit.TOGGLE_FILTER.consumeClick()) toggleFilterMode();
         while (KeyInit.OPEN_CONFIG.consumeClick()) Minecraft.getInstance().setScreen(new ConfigScreen());
         while (KeyInit.TOGGLE_AUTO.consumeClick()) toggleAutoMode();
+        while (KeyInit.CYCLE_SORT.consumeClick()) cycleSortMode();
+        while (KeyInit.TOGGLE_MARK.consumeClick()) toggleMark();
 
         // 拾取动作判定
         boolean isFKeyDown = KeyInit.PICKUP.isDown();
         boolean isShiftDown = Screen.hasShiftDown();
 
+        List<VisualItemEntry> nearbyItems = snapshot.getEntries();
         PickupHandler.PickupAction action = pickupHandler.tickInput(isFKeyDown, isShiftDown, !nearbyItems.isEmpty());
 
         switch (action) {
             case SINGLE:
-                sendSinglePickup();
+                // 有标记的条目时，点击拾取确认多选
+                if (markedEntryIds.isEmpty()) sendSinglePickup(nearbyItems);
+                else sendMarkedPickup(nearbyItems);
                 break;
             case BATCH:
-                List<ItemEntity> allEntities = new ArrayList<>();
-                for (VisualItemEntry entry : nearbyItems) {
-                    allEntities.addAll(entry.getSourceEntities());
-                }
-                sendBatchPickup(allEntities, false);
+                sendBatchPickup(nearbyItems, false);
                 break;
             default:
                 break;
@@ -223,7 +355,7 @@ public class Core {
      */
     private boolean shouldIgnoreScroll() {
         if (Minecraft.getInstance().screen instanceof ConfigScreen) return true;
-        if (nearbyItems.size() <= 1) return true;
+        if (snapshot.getEntries().size() <= 1) return true;
         if (Screen.hasShiftDown()) return true;
 
         Config.ScrollMode mode = Config.CLIENT.scrollMode.get();
@@ -241,7 +373,7 @@ public class Core {
     }
 
     private void performScroll(double delta) {
-        if (nearbyItems.size() <= 1) return;
+        if (snapshot.getEntries().size() <= 1) return;
         // delta > 0 为向上滚，索引减小；delta < 0 为向下滚，索引增加
         selectedIndex += (delta > 0) ? -1 : 1;
         validateSelection();
@@ -265,14 +397,38 @@ public class Core {
         }
     }
 
+    /**
+     * 快照更新后按分组 ID 重新定位选中项与视口.
+     * 通过快照的 ID → 位置索引 O(1) 查找；选中的条目已消失时停留在原位置 (由下一个条目顶替)。
+     */
+    private void resolveSelection() {
+        int size = snapshot.getEntries().size();
+        if (size == 0) {
+            validateSelection();
+            return;
+        }
+
+        int index = snapshot.indexOf(selectedEntryId);
+        selectedIndex = index >= 0 ? index : Math.min(selectedIndex, size - 1);
+
+        int anchor = snapshot.indexOf(anchorEntryId);
+        if (anchor >= 0) targetScrollOffset = anchor;
+
+        validateSelection();
+    }
+
     /**
      * 校验并修正选中索引，同时计算滚动视口偏移 (Scroll Offset).
-     * 包含循环滚动逻辑和视口跟随逻辑。
+     * 包含循环滚动逻辑和视口跟随逻辑。仅在选中项移动或快照更新时调用。
      */
     private void validateSelection() {
+        validatedRows = Config.Baked.visibleRows;
+        List<VisualItemEntry> nearbyItems = snapshot.getEntries();
         if (nearbyItems.isEmpty()) {
             selectedIndex = 0;
             targetScrollOffset = 0;
+            selectedEntryId = VisualItemEntry.NO_ID;
+            anchorEntryId = VisualItemEntry.NO_ID;
             return;
         }
 
@@ -280,11 +436,14 @@ public class Core {
         if (selectedIndex < 0) selectedIndex = nearbyItems.size() - 1;
         if (selectedIndex >= nearbyItems.size()) selectedIndex = 0;
 
-        double visibleRows = Math.max(1.0, Config.CLIENT.visibleRows.get());
+        double visibleRows = Math.max(1.0, validatedRows);
+
+        selectedEntryId = nearbyItems.get(selectedIndex).getEntryId();
 
         // 2. 计算视口偏移 (TargetScrollOffset)
         if (nearbyItems.size() <= visibleRows) {
             targetScrollOffset = 0;
+            anchorEntryId = nearbyItems.get(0).getEntryId();
             return;
         }
 
@@ -300,6 +459,7 @@ public class Core {
         // 边界钳制
         int maxOffset = (int) Math.ceil(Math.max(0, nearbyItems.size() - visibleRows));
         targetScrollOffset = Math.max(0, Math.min(targetScrollOffset, maxOffset));
+        anchorEntryId = nearbyItems.get(targetScrollOffset).getEntryId();
     }
 
     // =========================================
@@ -308,56 +468,154 @@ public class Core {
 
     /**
      * 发送单次拾取请求.
-     * 逻辑：对当前选中的条目，按距离排序后，发送 limitToMaxStack=true 的请求。
+     * 逻辑：对当前选中的条目，按距离由近到远发送最多拾取一组的请求。
+     * 准星正对选中行中的某个实体时，只拾取该实体。
      */
-    private void sendSinglePickup() {
+    private void sendSinglePickup(List<VisualItemEntry> nearbyItems) {
         if (selectedIndex >= 0 && selectedIndex < nearbyItems.size()) {
             VisualItemEntry entry = nearbyItems.get(selectedIndex);
 
-            List<ItemEntity> candidates = new ArrayList<>(entry.getSourceEntities());
-            Minecraft mc = Minecraft.getInstance();
-            if (mc.player != null) {
-                // 优先拾取最近的
-                candidates.sort(Comparator.comparingDouble(e -> e.distanceToSqr(mc.player)));
+            pickupRequest.reset();
+            if (targetEntityId != VisualItemEntry.NO_ID && snapshot.indexOfEntity(targetEntityId) == selectedIndex) {
+                if (requestable.test(targetEntityId)) {
+                    pickupRequest.addEntity(entry.getLootType(), targetEntityId, PacketBatchPickup.STACK_QUOTA);
+                }
+            } else {
+                pickupRequest.addEntry(entry, requestable, PacketBatchPickup.STACK_QUOTA);
             }
 
-            List<Integer> ids = candidates.stream()
-                    .filter(ItemEntity::isAlive)
-                    .map(ItemEntity::getId)
-                    .collect(Collectors.toList());
+            sendPickupRequest(false);
+        }
+    }
 
-            if (!ids.isEmpty()) {
-                NetworkHandler.sendToServer(new PacketBatchPickup(ids, false, true));
+    /**
+     * 发送多选拾取请求.
+     * 逻辑：所有已标记的条目合并为一个数据包，每个条目独占一段，各自按单次拾取的语义最多拾取一组。
+     * 发送后清空标记。
+     */
+    private void sendMarkedPickup(List<VisualItemEntry> nearbyItems) {
+        pickupRequest.reset();
+        for (VisualItemEntry entry : nearbyItems) {
+            if (markedEntryIds.contains(entry.getEntryId())) {
+                pickupRequest.addEntry(entry, requestable, PacketBatchPickup.STACK_QUOTA);
             }
         }
+        markedEntryIds.clear();
+        sendPickupRequest(false);
     }
 
     /**
      * 发送批量拾取请求.
      * 逻辑：不限制数量，请求拾取列表中的所有实体。
      *
-     * @param entities 目标实体列表
+     * @param entries 目标条目列表
      * @param isAuto 是否由自动拾取触发 (服务端可能据此略过某些检查)
      */
-    private void sendBatchPickup(List<ItemEntity> entities, boolean isAuto) {
-        List<Integer> ids = entities.stream()
-                .filter(ItemEntity::isAlive)
-                .map(ItemEntity::getId)
-                .collect(Collectors.toList());
-
-        if (!ids.isEmpty()) {
-            NetworkHandler.sendToServer(new PacketBatchPickup(ids, isAuto, false));
+    private void sendBatchPickup(List<VisualItemEntry> entries, boolean isAuto) {
+        // 自动拾取跳过背包必然放不下的条目；全部放不下时不发送，背包变化后自然恢复
+        // 手动拾取不过滤，由服务端给出 "背包已满" 的提示
+        Minecraft mc = Minecraft.getInstance();
+        boolean checkCapacity = isAuto && mc.player != null;
+        if (checkCapacity) {
+            inventoryIndex.sync(mc.player);
+            inventoryIndex.beginBudget();
         }
+
+        pickupRequest.reset();
+        for (VisualItemEntry entry : entries) {
+            if (checkCapacity && !reserveCapacity(entry)) continue;
+            pickupRequest.addEntry(entry, requestable);
+        }
+
+        sendPickupRequest(isAuto);
+    }
+
+    /** 发送已构建的拾取请求，并将其中的实体登记为等待确认 (立即从列表中隐藏) */
+    private void sendPickupRequest(boolean isAuto) {
+        if (pickupRequest.isEmpty()) return;
+        int requestId = nextRequestId++;
+        NetworkHandler.sendToServer(pickupRequest.build(requestId, isAuto));
+        pendingPickups.add(requestId, pickupRequest.getOrderedIds(), pickupRequest.size());
+        scanScheduler.requestImmediate();
+    }
+
+    /**
+     * 处理服务端的拾取确认 (客户端主线程调用).
+     * 仍然留在世界中的实体回滚到列表中，其余实体继续隐藏直到服务端的移除同步到达。
+     *
+     * @param requestId 请求序号
+     * @param remaining 请求中未被拾取的实体
+     * @param rejected 服务端判定不可拾取的实体 (继续隐藏，不回滚)
+     */
+    public void onPickupAck(int requestId, int[] remaining, int[] rejected) {
+        if (pendingPickups.onAck(requestId, remaining, rejected)) scanScheduler.requestImmediate();
+    }
+
+    /**
+     * 按客户端的背包容量模型判断条目是否至少还能放入一个，并从本次请求的容量预算中扣除它占用的空间
+     * (不占背包的类型总是可以，也不扣除预算)。
+     */
+    private boolean reserveCapacity(VisualItemEntry entry) {
+        LootProvider<Entity> provider = LootProviders.get(entry.getLootType());
+        if (provider != null && !provider.requiresInventorySpace()) return true;
+        return inventoryIndex.reserve(entry.getItem(), entry.getCount());
+    }
+
+    /**
+     * 按 ID 在当前世界中查找实体，判断其是否仍然可拾取.
+     * 快照可能比世界状态落后一个 tick，已被拾取或消失的实体在此处排除。
+     */
+    private static boolean isLiveLoot(int id) {
+        ClientLevel level = Minecraft.getInstance().level;
+        if (level == null) return false;
+        Entity entity = level.getEntity(id);
+        if (entity == null) return false;
+        LootProvider<Entity> provider = LootProviders.find(entity);
+        return provider != null && provider.isLootable(entity);
+    }
+
+    /** 标记 / 取消标记当前选中的条目 */
+    public void toggleMark() {
+        List<VisualItemEntry> nearbyItems = snapshot.getEntries();
+        if (selectedIndex < 0 || selectedIndex >= nearbyItems.size()) return;
+        int entryId = nearbyItems.get(selectedIndex).getEntryId();
+        if (entryId == VisualItemEntry.NO_ID) return;
+        if (!markedEntryIds.remove(entryId)) markedEntryIds.add(entryId);
+    }
+
+    /** 移除已不在列表中的条目的标记 */
+    private void pruneMarks() {
+        if (markedEntryIds.isEmpty()) return;
+        markedEntryIds.removeIf(entryId -> snapshot.indexOf(entryId) < 0);
     }
 
     public void toggleFilterMode() {
         filterMode = (filterMode == FilterMode.ALL) ? FilterMode.RARE_ONLY : FilterMode.ALL;
+        scanScheduler.requestImmediate();
         validateSelection();
     }
 
+    /**
+     * 循环切换列表排序模式，并写回配置文件.
+     */
+    public void cycleSortMode() {
+        Config.SortMode mode = Config.Baked.sortMode.next();
+        Config.CLIENT.sortMode.set(mode);
+        Config.CLIENT_SPEC.save();
+        Config.Baked.sortMode = mode;
+        scanScheduler.requestImmediate();
+
+        Minecraft mc = Minecraft.getInstance();
+        if (mc.player != null) {
+            Component name = Component.translatable("message.better_looting.sort." + mode.name().toLowerCase(Locale.ROOT));
+            mc.player.displayClientMessage(Component.translatable("message.better_looting.sort_mode", name).withStyle(ChatFormatting.YELLOW), true);
+        }
+    }
+
     public void toggleAutoMode() {
         isAutoMode = !isAutoMode;
         pickupHandler.resetAutoCooldown();
+        scanScheduler.requestImmediate();
 
         Minecraft mc = Minecraft.getInstance();
         if (mc.player != null) {
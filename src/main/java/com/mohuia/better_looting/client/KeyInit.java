@@ -65,6 +65,30 @@ public class KeyInit {
             CATEGORY
     );
 
+    /**
+     * 循环切换列表排序模式 (默认未绑定)
+     * 稀有度 -> 距离 -> 数量 -> 估值。
+     */
+    public static final KeyMapping CYCLE_SORT = new KeyMapping(
+            "key.better_looting.cycle_sort",
+            KeyConflictContext.IN_GAME,
+            InputConstants.Type.KEYSYM,
+            InputConstants.UNKNOWN.getValue(),
+            CATEGORY
+    );
+
+    /**
+     * 标记 / 取消标记选中的条目 (默认: G)
+     * 存在标记时，点击拾取键会在一个请求中拾取所有已标记的条目 (每个条目一组)。
+     */
+    public static final KeyMapping TOGGLE_MARK = new KeyMapping(
+            "key.better_looting.toggle_mark",
+            KeyConflictContext.IN_GAME,
+            InputConstants.Type.KEYSYM,
+            GLFW.GLFW_KEY_G,
+            CATEGORY
+    );
+
     /**
      * HUD 显示控制键 (默认未绑定)
      * 用于强制显示或隐藏掉落物列表覆盖层。
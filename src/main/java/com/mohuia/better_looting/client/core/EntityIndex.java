@@ -0,0 +1,70 @@
+package com.mohuia.better_looting.client.core;
+
+import java.util.Arrays;
+
+/**
+ * 实体 ID -> 分组 ID 的不可变反向索引.
+ * <p>
+ * 由 {@link IntMap#freeze} 从扫描器的成员表生成，随 {@link ScanSnapshot} 一同发布；
+ * 用于 O(1) 回答 "某个掉落物实体属于列表中的哪一行"。
+ * 只有实体与分组的对应关系发生变化时才重新生成，否则新快照沿用上一份索引。
+ * </p>
+ * <p>
+ * 同样的 int -> int 布局也用于快照中 分组 ID -> 列表位置 的索引 ({@link #ofPositions})，查找不装箱。
+ * </p>
+ */
+public final class EntityIndex {
+
+    /** 空槽标记 (与 {@link VisualItemEntry#NO_ID} 相同) */
+    static final int ABSENT = VisualItemEntry.NO_ID;
+
+    public static final EntityIndex EMPTY = new EntityIndex(new int[1], new int[] { ABSENT });
+
+    private final int[] keys;
+    private final int[] entryIds;
+    private final int mask;
+
+    /** 槽位布局与 {@link IntMap} 相同：长度为 2 的幂，空槽的分组 ID 为 {@link #ABSENT} */
+    EntityIndex(int[] keys, int[] entryIds) {
+        this.keys = keys;
+        this.entryIds = entryIds;
+        this.mask = keys.length - 1;
+    }
+
+    /**
+     * 构建 keys[i] -> i 的位置索引.
+     * @param keys 互不相同的键，只读取前 count 个
+     */
+    static EntityIndex ofPositions(int[] keys, int count) {
+        if (count == 0) return EMPTY;
+        // 容量为 2 的幂且不低于 2 倍元素数，负载因子不超过 0.5
+        int capacity = Integer.highestOneBit(count) << 2;
+        int mask = capacity - 1;
+        int[] slotKeys = new int[capacity];
+        int[] slotValues = new int[capacity];
+        Arrays.fill(slotValues, ABSENT);
+        for (int i = 0; i < count; i++) {
+            int slot = IntMap.mix(keys[i]) & mask;
+            while (slotValues[slot] != ABSENT) slot = (slot + 1) & mask;
+            slotKeys[slot] = keys[i];
+            slotValues[slot] = i;
+        }
+        return new EntityIndex(slotKeys, slotValues);
+    }
+
+    /**
+     * 查找实体所属的分组.
+     * @return 分组 ID ({@link VisualItemEntry#getEntryId()})；实体不在列表中时返回 {@link VisualItemEntry#NO_ID}
+     */
+    public int entryIdOf(int entityId) {
+        return get(entityId);
+    }
+
+    /** 按键查找；不存在时返回 {@link #ABSENT} */
+    int get(int key) {
+        for (int slot = IntMap.mix(key) & mask; entryIds[slot] != ABSENT; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) return entryIds[slot];
+        }
+        return ABSENT;
+    }
+}
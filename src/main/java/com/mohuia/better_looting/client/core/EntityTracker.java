@@ -0,0 +1,265 @@
+package com.mohuia.better_looting.client.core;
+
+import com.mohuia.better_looting.loot.LootProvider;
+import com.mohuia.better_looting.loot.LootProviders;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.phys.AABB;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.entity.EntityJoinLevelEvent;
+import net.minecraftforge.event.entity.EntityLeaveLevelEvent;
+import net.minecraftforge.event.level.LevelEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+import java.util.*;
+
+/**
+ * 客户端可拾取实体追踪器.
+ * <p>
+ * 通过实体加入/离开世界事件增量维护所有注册了 {@link LootProvider} 的实体 (掉落物、经验球、箭等)，并在 {@link SpatialGrid} 中建立空间索引。
+ * 所有类型共用同一个网格，扫描器一次查询即可得到全部类型的候选实体，提供者在加入时查找一次并随记录保存。
+ * 扫描器只需读取与拾取范围相交的少数格子，而不必每 tick 调用 {@code getEntitiesOfClass} 遍历实体存储。
+ * 当相交格子集合及其内容都没有变化时，查询直接复用上一次的候选列表。
+ * </p>
+ * <p>
+ * 实体坐标变化时经 {@link MovementHook} 登记到待更新列表，{@link #tick} 只重新分桶这些实体，
+ * 开销与本 tick 移动过的实体数量成正比，与世界中的掉落物总量无关。实体只在离开世界事件中移除。
+ * </p>
+ */
+public class EntityTracker {
+
+    /** 当前追踪的世界，切换维度或退出存档时重置 */
+    private ClientLevel level;
+
+    private final Map<Integer, Tracked> byId = new HashMap<>();
+    /** 连续存储，便于每 tick 无分配地遍历 */
+    private final List<Tracked> all = new ArrayList<>();
+    private final SpatialGrid grid = new SpatialGrid();
+    /** 自上次 {@link #tick} 以来坐标发生过变化的实体 */
+    private final List<Tracked> moved = new ArrayList<>();
+
+    /** 自上次 {@link #drainRemoved()} 以来离开世界的实体 ID (扫描器据此立即移除，不等待宽限期) */
+    private int[] removedIds = new int[16];
+    private int removedCount = 0;
+
+    // --- 查询结果缓存 ---
+    private final List<Tracked> candidates = new ArrayList<>();
+    private final List<Tracked> nearest = new ArrayList<>();
+    /** 球形查询的排序键 (复用)：高 32 位为距离平方的浮点位模式，低 32 位为候选下标 */
+    private long[] nearestKeys = new long[64];
+
+    public EntityTracker() {
+        MinecraftForge.EVENT_BUS.register(this);
+    }
+
+    // =========================================
+    //               事件监听
+    // =========================================
+
+    /**
+     * 实体加入世界.
+     * 使用最低优先级，确保被其他模组取消的加入事件不会被记录。
+     */
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public void onEntityJoin(EntityJoinLevelEvent event) {
+        if (event.getLevel() != level) return;
+        add(event.getEntity());
+    }
+
+    @SubscribeEvent
+    public void onEntityLeave(EntityLeaveLevelEvent event) {
+        if (event.getLevel() != level) return;
+        remove(event.getEntity().getId());
+    }
+
+    @SubscribeEvent
+    public void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() == level) reset(null);
+    }
+
+    // =========================================
+    //               维护与查询
+    // =========================================
+
+    /**
+     * 同步追踪状态，应在每次查询前调用.
+     * <p>
+     * 1. 世界实例变化时 (首次进入、切换维度) 从 {@link ClientLevel#entitiesForRendering()} 重新播种。<br>
+     * 2. 重新分桶坐标变化过的实体，仅跨越格子边界时才修改网格。
+     * </p>
+     */
+    public void tick(ClientLevel current) {
+        if (current != level) {
+            reset(current);
+            if (current != null) {
+                for (Entity entity : current.entitiesForRendering()) {
+                    add(entity);
+                }
+            }
+        }
+
+        for (Tracked t : moved) {
+            t.moved = false;
+            // 登记后已被移除的实体不再更新
+            if (t.index < 0) continue;
+            grid.update(t, t.entity.getX(), t.entity.getY(), t.entity.getZ());
+        }
+        moved.clear();
+    }
+
+    /**
+     * 获取与指定范围相交格子内的候选实体.
+     * <p>
+     * 返回值是候选超集 (按格子粒度)，调用方仍需自行进行精确的包围盒判定。
+     * 若相交格子与上次相同且版本号均未变化，则跳过查询，直接返回缓存列表。
+     * </p>
+     *
+     * @param area 查询范围
+     * @return 只读的候选实体列表，在下一次调用前有效
+     */
+    List<Tracked> query(AABB area) {
+        return collect(grid.query(area));
+    }
+
+    private List<Tracked> collect(List<SpatialGrid.Node> nodes) {
+        if (!grid.isLastQueryReused()) {
+            candidates.clear();
+            for (SpatialGrid.Node node : nodes) candidates.add((Tracked) node);
+        }
+        return candidates;
+    }
+
+    /**
+     * 获取球形范围内的实体，按距离由近到远排序.
+     * <p>
+     * 仅访问与球体包围盒相交的格子，排序只作用于命中的实体，开销与结果数量成正比。
+     * 距离度量与服务端校验一致 ({@code Entity#distanceToSqr}，实体坐标点之间的距离)。
+     * 每个实体的距离只计算一次，写入 {@link Tracked#distanceSqr} 供调用方复用；
+     * 排序作用于打包的 long 键 (非负浮点数的位模式与数值同序)，不使用比较器。
+     * </p>
+     *
+     * @return 只读的实体列表，在下一次调用前有效
+     */
+    List<Tracked> queryNearest(double x, double y, double z, double radius) {
+        List<Tracked> inBox = collect(grid.query(x - radius, y - radius, z - radius, x + radius, y + radius, z + radius));
+
+        double radiusSqr = radius * radius;
+        int n = inBox.size();
+        if (nearestKeys.length < n) nearestKeys = new long[Math.max(n, nearestKeys.length * 2)];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            Tracked t = inBox.get(i);
+            double distSqr = t.entity.distanceToSqr(x, y, z);
+            if (distSqr > radiusSqr) continue;
+            t.distanceSqr = distSqr;
+            nearestKeys[count++] = ((long) Float.floatToRawIntBits((float) distSqr) << 32) | i;
+        }
+        Arrays.sort(nearestKeys, 0, count);
+
+        nearest.clear();
+        for (int k = 0; k < count; k++) nearest.add(inBox.get((int) nearestKeys[k]));
+        return nearest;
+    }
+
+    /** 取出并清空离开世界的实体 ID */
+    int[] drainRemoved() {
+        int[] result = Arrays.copyOf(removedIds, removedCount);
+        removedCount = 0;
+        return result;
+    }
+
+    // =========================================
+    //               内部实现
+    // =========================================
+
+    /** 追踪实体；实体类型未注册提供者时忽略 */
+    private void add(Entity entity) {
+        LootProvider<Entity> provider = LootProviders.find(entity);
+        if (provider == null || byId.containsKey(entity.getId())) return;
+        Tracked t = new Tracked(this, entity, provider);
+        t.index = all.size();
+        all.add(t);
+        byId.put(entity.getId(), t);
+        grid.insert(t, entity.getX(), entity.getY(), entity.getZ());
+        ((MovementHook) entity).betterLooting$setMoveListener(t);
+    }
+
+    private void remove(int entityId) {
+        Tracked t = byId.remove(entityId);
+        if (t == null) return;
+        recordRemoved(entityId);
+
+        // swap-remove: 用末尾元素填补空位，O(1)
+        Tracked last = all.remove(all.size() - 1);
+        if (last != t) {
+            last.index = t.index;
+            all.set(t.index, last);
+        }
+        t.index = -1;
+        grid.remove(t);
+        ((MovementHook) t.entity).betterLooting$setMoveListener(null);
+    }
+
+    private void recordRemoved(int entityId) {
+        if (removedCount == removedIds.length) removedIds = Arrays.copyOf(removedIds, removedCount * 2);
+        removedIds[removedCount++] = entityId;
+    }
+
+    private void reset(ClientLevel newLevel) {
+        // 切换世界时旧世界的实体全部视为离开，新世界可能复用相同的实体 ID
+        for (int entityId : byId.keySet()) recordRemoved(entityId);
+        for (Tracked t : all) ((MovementHook) t.entity).betterLooting$setMoveListener(null);
+        this.level = newLevel;
+        byId.clear();
+        all.clear();
+        grid.clear();
+        candidates.clear();
+        nearest.clear();
+        moved.clear();
+    }
+
+    /** 单个被追踪实体的记录，同时作为实体的移动监听器 */
+    static final class Tracked extends SpatialGrid.Node implements Runnable {
+        private final EntityTracker owner;
+        final Entity entity;
+        final LootProvider<Entity> provider;
+        /** 在 {@link #all} 中的下标，用于 O(1) 删除；已移除时为 -1 */
+        int index;
+        /** 最近一次被扫描器采集时的轮次 (由 {@link LootScanner} 维护) */
+        int scanRound;
+        /** 最近一次 {@link #queryNearest} 计算出的到查询中心的距离平方 */
+        double distanceSqr;
+        /** 是否已登记在 {@link #moved} 中 (同一 tick 内多次移动只登记一次) */
+        private boolean moved;
+        /** 缓存的显示物品栈及其版本号 (见 {@link LootProvider#getDisplayStackVersion}) */
+        private ItemStack displayStack;
+        private int displayVersion;
+
+        Tracked(EntityTracker owner, Entity entity, LootProvider<Entity> provider) {
+            this.owner = owner;
+            this.entity = entity;
+            this.provider = provider;
+        }
+
+        /** 显示物品栈；提供者给出的版本号不变时复用上一次的实例 (主线程) */
+        ItemStack displayStack() {
+            int version = provider.getDisplayStackVersion(entity);
+            if (version == LootProvider.UNVERSIONED) return provider.getDisplayStack(entity);
+            if (displayStack == null || version != displayVersion) {
+                displayStack = provider.getDisplayStack(entity);
+                displayVersion = version;
+            }
+            return displayStack;
+        }
+
+        /** 实体坐标变化 (主线程) */
+        @Override
+        public void run() {
+            if (moved) return;
+            moved = true;
+            owner.moved.add(this);
+        }
+    }
+}
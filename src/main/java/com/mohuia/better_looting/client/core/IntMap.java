@@ -0,0 +1,143 @@
+package com.mohuia.better_looting.client.core;
+
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
+/**
+ * 以 int 为键的开放寻址哈希表 (线性探测).
+ * <p>
+ * 用于实体 ID -> 扫描器成员记录的索引。键不装箱，查找、插入与删除均为 O(1)，
+ * 删除采用后移 (backward shift) 而非墓碑，表在大量实体反复进出后不会退化。
+ * 空槽以 value == null 表示，因此不支持 null 值。
+ * </p>
+ * <p>
+ * 非线程安全；跨线程发布时使用 {@link #freeze(ToIntFunction)} 生成不可变的 {@link EntityIndex}。
+ * </p>
+ */
+final class IntMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    IntMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    int size() { return size; }
+
+    /** 槽位数量 (2 的幂)，配合 {@link #valueAt} 遍历 */
+    int capacity() { return keys.length; }
+
+    /** @return 槽位中的值；空槽返回 null */
+    @SuppressWarnings("unchecked")
+    V valueAt(int slot) { return (V) values[slot]; }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        for (int slot = mix(key) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) return (V) values[slot];
+        }
+        return null;
+    }
+
+    /** @return 被替换的旧值；不存在时返回 null */
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        int slot = mix(key) & mask;
+        for (; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                V old = (V) values[slot];
+                values[slot] = value;
+                return old;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        // 负载因子 0.5，线性探测的平均探测长度保持在 2 以内
+        if (++size * 2 > keys.length) rehash(keys.length << 1);
+        return null;
+    }
+
+    /** @return 被移除的值；不存在时返回 null */
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        for (int slot = mix(key) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                V old = (V) values[slot];
+                shiftBack(slot);
+                size--;
+                return old;
+            }
+        }
+        return null;
+    }
+
+    /** 清空所有元素，保留当前容量 */
+    void clear() {
+        if (size == 0) return;
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * 生成不可变的 键 -> int 索引.
+     * 直接复用当前的槽位布局，只需一次线性复制，无需重新哈希。
+     */
+    EntityIndex freeze(ToIntFunction<? super V> valueMapper) {
+        if (size == 0) return EntityIndex.EMPTY;
+        int[] frozenValues = new int[keys.length];
+        for (int slot = 0; slot < keys.length; slot++) {
+            frozenValues[slot] = values[slot] == null ? EntityIndex.ABSENT : valueMapper.applyAsInt(valueAt(slot));
+        }
+        return new EntityIndex(keys.clone(), frozenValues);
+    }
+
+    /** 删除槽位后，将其后同一探测链上的元素前移填补空洞 */
+    private void shiftBack(int hole) {
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == null) break;
+            int home = mix(keys[slot]) & mask;
+            // 元素的理想位置不在 (hole, slot] 区间内时，才能移动到空洞处
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = keys[slot];
+                values[hole] = values[slot];
+                hole = slot;
+            }
+        }
+        values[hole] = null;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        int oldSize = size;
+        allocate(newCapacity);
+        size = oldSize;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == null) continue;
+            int slot = mix(oldKeys[i]) & mask;
+            while (values[slot] != null) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    /** 实体 ID 是连续分配的，打散后再取低位，避免相邻 ID 聚集成长探测链 */
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,166 @@
+package com.mohuia.better_looting.client.core;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.entity.player.Inventory;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * 玩家背包的物品存在性与容量索引.
+ * <p>
+ * 以物品注册 ID 为下标的位集合，回答 "背包中是否已有该物品" 只需一次位运算。
+ * 索引只在背包内容真正变化时重建：原版每次槽位变化都会递增 {@link Inventory#getTimesChanged()}，
+ * 计数与玩家实例均未变化时直接复用上一次的结果。HUD 每帧为每个可见行查询 "NEW" 标签时不再遍历背包。
+ * </p>
+ * <p>
+ * 同时维护一个简化的容量模型，与原版 {@code Inventory.add} 的放置规则一致：
+ * 主背包的空槽数量，以及主背包与副手中每种 物品 + NBT (带 NBT 的物品额外记录其标签) 未堆满的剩余空间。
+ * 自动拾取据此跳过必然放不下的掉落物，背包已满时不再向服务端发送无效的拾取请求。
+ * 一次请求中的多个条目共享同一份容量预算 ({@link #beginBudget} / {@link #reserve})：
+ * 每接受一个条目就扣除它占用的堆叠空间与空槽，背包只剩一个空槽时不会同时请求几十种物品。
+ * 仅由主线程 / 渲染线程访问。
+ * </p>
+ */
+public final class InventoryIndex {
+
+    /** 出现过的物品 (任意 NBT) */
+    private final BitSet present = new BitSet();
+    /** 物品注册 ID -> 背包中该物品的各个 NBT 变体及其剩余空间 */
+    private final IntMap<Variants> variants = new IntMap<>();
+    /** 主背包 (不含护甲与副手) 的空槽数量 */
+    private int freeSlots;
+
+    /** 当前请求的剩余空槽预算 */
+    private int budgetSlots;
+    /** 当前请求的预算代数：变体的预算记录代数不符时视为未扣除，无需逐个重置 */
+    private int budgetGeneration;
+
+    private Inventory inventory;
+    private int seenTimesChanged;
+
+    /**
+     * 背包变化时重建索引.
+     * @return 本次是否重建
+     */
+    public boolean sync(Player player) {
+        Inventory current = player.getInventory();
+        int timesChanged = current.getTimesChanged();
+        if (current == inventory && timesChanged == seenTimesChanged) return false;
+
+        inventory = current;
+        seenTimesChanged = timesChanged;
+        rebuild(current);
+        return true;
+    }
+
+    /** 背包中是否有该物品 (不区分 NBT) */
+    public boolean contains(Item item) {
+        return present.get(Item.getId(item));
+    }
+
+    /** 开始一次请求的容量预算：此后的 {@link #reserve} 从当前背包状态的副本中扣除 */
+    public void beginBudget() {
+        budgetGeneration++;
+        budgetSlots = freeSlots;
+    }
+
+    /**
+     * 从当前请求的容量预算中扣除 count 个该物品.
+     * 先填充已有的同物品同 NBT 物品栈，剩余部分按整槽扣除空槽 (新占用的槽位的剩余空间不再分配给其他条目，偏保守)。
+     * @return 是否至少还能放入一个 (为 false 时预算不变)
+     */
+    public boolean reserve(ItemStack stack, int count) {
+        int remaining = count;
+        boolean accepted = false;
+
+        Variants entry = variants.get(Item.getId(stack.getItem()));
+        int v = entry == null ? -1 : entry.indexOf(stack.getTag());
+        if (v >= 0) {
+            if (entry.budgetGenerations[v] != budgetGeneration) {
+                entry.budgetGenerations[v] = budgetGeneration;
+                entry.budgets[v] = entry.spaces[v];
+            }
+            int used = Math.min(entry.budgets[v], remaining);
+            entry.budgets[v] -= used;
+            remaining -= used;
+            accepted = used > 0;
+        }
+
+        if (remaining > 0 && budgetSlots > 0) {
+            int perSlot = inventory == null ? stack.getMaxStackSize()
+                    : Math.min(stack.getMaxStackSize(), inventory.getMaxStackSize());
+            int slots = (remaining + perSlot - 1) / Math.max(1, perSlot);
+            budgetSlots -= Math.min(budgetSlots, slots);
+            accepted = true;
+        }
+        return accepted;
+    }
+
+    private void rebuild(Inventory inventory) {
+        present.clear();
+        variants.clear();
+        freeSlots = 0;
+
+        int size = inventory.getContainerSize();
+        int mainSize = inventory.items.size();
+        for (int i = 0; i < size; i++) {
+            ItemStack stack = inventory.getItem(i);
+            boolean storage = i < mainSize || i == Inventory.SLOT_OFFHAND;
+            if (stack.isEmpty()) {
+                // 原版只会把新物品放入主背包的空槽
+                if (i < mainSize) freeSlots++;
+                continue;
+            }
+
+            int itemId = Item.getId(stack.getItem());
+            present.set(itemId);
+            Variants entry = variants.get(itemId);
+            if (entry == null) {
+                entry = new Variants();
+                variants.put(itemId, entry);
+            }
+            CompoundTag tag = stack.getTag();
+            int v = entry.indexOf(tag);
+            if (v < 0) v = entry.add(tag);
+            // 护甲槽中的物品只计入存在性，不会被拾取堆叠进去
+            if (storage) {
+                int limit = Math.min(stack.getMaxStackSize(), inventory.getMaxStackSize());
+                entry.spaces[v] += Math.max(0, limit - stack.getCount());
+            }
+        }
+    }
+
+    /** 同一物品在背包中的 NBT 变体 (null 表示无 NBT)；变体数量很少，线性查找即可 */
+    private static final class Variants {
+        CompoundTag[] tags = new CompoundTag[2];
+        int[] spaces = new int[2];
+        /** 当前请求剩余的预算空间，仅在对应的 budgetGenerations 与索引的代数一致时有效 */
+        int[] budgets = new int[2];
+        int[] budgetGenerations = new int[2];
+        int count = 0;
+
+        int indexOf(CompoundTag tag) {
+            for (int i = 0; i < count; i++) {
+                // 背包中的标签可能被客户端就地修改，不使用指纹缓存，直接比较
+                if (tags[i] == tag || Objects.equals(tags[i], tag)) return i;
+            }
+            return -1;
+        }
+
+        int add(CompoundTag tag) {
+            if (count == tags.length) {
+                tags = Arrays.copyOf(tags, count * 2);
+                spaces = Arrays.copyOf(spaces, count * 2);
+                budgets = Arrays.copyOf(budgets, count * 2);
+                budgetGenerations = Arrays.copyOf(budgetGenerations, count * 2);
+            }
+            tags[count] = tag;
+            return count++;
+        }
+    }
+}
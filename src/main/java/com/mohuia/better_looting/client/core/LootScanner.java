@@ -3,25 +3,170 @@ package com.mohuia.better_looting.client.core;
 import com.mohuia.better_looting.client.Core;
 import com.mohuia.better_looting.client.Utils;
 import com.mohuia.better_looting.client.filter.FilterWhitelist;
+import com.mohuia.better_looting.config.Config;
+import com.mohuia.better_looting.loot.LootProvider;
 import net.minecraft.client.Minecraft;
 import net.minecraft.nbt.CompoundTag;
-import net.minecraft.world.entity.item.ItemEntity;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.Entity;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.Rarity;
 import net.minecraft.world.phys.AABB;
+import net.minecraftforge.registries.ForgeRegistries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntPredicate;
 
 /**
  * 物品扫描与合并器.
- * 负责扫描指定范围内的 {@link ItemEntity}，并根据物品堆叠规则将其合并为 {@link VisualItemEntry}。
+ * 负责扫描指定范围内的可拾取实体 (由 {@link LootProvider} 提供显示物品与数量)，并根据物品堆叠规则将其合并为 {@link VisualItemEntry}。
+ * 所有类型的实体在同一次空间查询、同一条流水线中处理，不同提供者的实体不会合并到同一行。
  * 采用了 HashMap 优化算法，将合并操作的时间复杂度从 O(N*M) 降低至 O(N)。
+ * 候选实体由 {@link EntityTracker} 的空间网格提供，不再每 tick 查询世界实体存储。
+ * 默认使用玩家包围盒外扩的小范围；开启收集者模式 ({@link Config.Baked#collectorMode}) 时改为可配置半径的球形范围。
+ * <p>
+ * 扫描分为两段流水线：
+ * 1. 主线程：同步实体追踪并采集候选实体的 ID、坐标、物品栈引用与数量 ({@link ScanInput})，开销与候选数量成正比。<br>
+ * 2. 后台线程：过滤、合并与排序，构建不可变的 {@link ScanSnapshot}，由主线程通过 {@link #poll()} 取走。
+ * 排序方式由 {@link Config.SortMode} 决定：
+ * 稀有度排序的键在分组生命周期内不变，采用部分排序 ({@link PartialSort})，只保证选中项与滚动窗口之前的前缀精确有序；
+ * 距离、数量与估值排序的键随时间变化，列表保持完全有序，每次扫描在上一次的顺序上做插入排序，接近线性。
+ * 同一时刻最多只有一个扫描任务在后台执行，主线程在后台繁忙时直接跳过提交，不会排队堆积。
+ * </p>
+ * <p>
+ * 扫描结果在 tick 之间保留：每次扫描只处理新增、消失和数量变化的实体，
+ * 并以 {@link ScanDelta} 的形式报告变化。列表静止时不会发布新快照。
+ * </p>
+ * <p>
+ * 范围判定带有滞回：实体要深入拾取范围内侧的进入余量 ({@link #ENTER_MARGIN}) 才会加入列表，
+ * 离开时要超出额外的退出余量 ({@link #EXIT_MARGIN}) 才算离开，
+ * 并且在 {@link #GRACE_TICKS} 内重新出现时保留原有的行。在边界上弹跳或滑动的掉落物不会反复进出列表，
+ * 避免由此引发的重建、重排、入场动画与选中项跳动。被拾取或消失的实体 (离开世界) 不受宽限期影响，立即移除。
+ * </p>
+ * <p>
+ * 主线程采集受扫描预算约束 ({@link Config.Baked#scanBudgetEntities} / {@link Config.Baked#scanBudgetMicros})：
+ * 大量掉落物同时出现时 (如 TNT 采矿、破坏存储方块)，每 tick 只采集最近的一部分实体与轮到的实体，
+ * 剩余实体在后续 tick 轮流采集，单 tick 耗时保持有界。本轮未完成时快照标记为部分结果 ({@link ScanSnapshot#isPartial()})。
+ * </p>
  */
 public class LootScanner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LootScanner.class);
 
     private static final double EXPAND_XZ = 1.0;
     private static final double EXPAND_Y = 0.5;
+    /** 进入余量 (方块)：实体进入拾取范围内侧该距离后才会加入列表 */
+    private static final double ENTER_MARGIN = 0.25;
+    /** 退出余量 (方块)：已在列表中的实体超出拾取范围该距离后才会被移除 */
+    private static final double EXIT_MARGIN = 0.5;
+    /** 消失宽限期 (tick)：列表成员连续未被扫描到超过该时长才会被移除 */
+    private static final int GRACE_TICKS = 10;
+    /** 超出扫描预算时，预算中每 tick 必定采集的最近实体所占的份额 (1/N) */
+    private static final int PRIORITY_SHARE = 4;
+    /** 每 tick 必定采集的最近实体数量下限，也是时间预算下每 tick 至少轮转的实体数量 */
+    private static final int PRIORITY_MIN = 32;
+    private static final int DISPLAY_CACHE_SIZE = 256;
+    private static final int HIDE_CACHE_SIZE = 4096;
+
+    /** 资源重载计数 (语言、物品模型与数据包可能改变稀有度及名称)，由主线程递增，后台线程比对 */
+    private static final AtomicInteger RESOURCE_VERSION = new AtomicInteger();
+
+    /** 仅由主线程访问 */
+    private final EntityTracker tracker = new EntityTracker();
+    /** 采集时排除的实体 (如已请求拾取、等待服务端确认的实体)，主线程调用 */
+    private IntPredicate excluded = entityId -> false;
+
+    // --- 分轮采集状态 (主线程) ---
+    /** 当前采集轮次；候选实体超出扫描预算时，每个实体在一轮内至少被采集一次 */
+    private int round = 1;
+    /** 当前轮次开始时的世界时间；Long.MIN_VALUE 表示下一次采集开始新的一轮 */
+    private long roundStartTick = Long.MIN_VALUE;
+    /** 本轮是否仍有未采集的候选实体 */
+    private boolean roundPending = false;
+    private long[] sortKeys = new long[64];
+    /** 轮转采集的起点 (候选列表下标)，超出预算时下一 tick 从这里继续 */
+    private int rotationCursor = 0;
+    private final List<EntityTracker.Tracked> budgetSelection = new ArrayList<>();
+
+    /** 单线程后台执行器，下方所有扫描状态仅由该线程访问 */
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "BetterLooting-Scanner");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /** 后台是否有正在执行的扫描任务 */
+    private final AtomicBoolean busy = new AtomicBoolean(false);
+    /** 已发布、尚未被主线程取走的快照 (后台写入，主线程取走) */
+    private final AtomicReference<ScanSnapshot> unconsumed = new AtomicReference<>();
+
+    // --- 跨扫描保留的状态 (后台线程) ---
+
+    /** 实体 ID -> 成员记录 (int 键开放寻址表，移除与数量更新均为 O(1)) */
+    private final IntMap<Member> members = new IntMap<>();
+    /** 本次扫描中被过滤、待移除的成员 (复用，避免在遍历时修改成员表) */
+    private final List<Member> stale = new ArrayList<>();
+    /** 按最近一次被扫描到的时间排列的成员链表 (最旧在前)：宽限期清理只检查表头，不遍历整个成员表 */
+    private Member oldestSeen, newestSeen;
+    /** 本次扫描中成员或成员距离发生变化、需要重新排序成员的分组 */
+    private final List<Group> unsortedGroups = new ArrayList<>();
+    /** 最近一次发布的 实体 ID -> 分组 ID 反向索引；实体与分组的对应关系变化时重新生成 */
+    private EntityIndex entityIndex = EntityIndex.EMPTY;
+    /** 构建 分组 ID -> 列表位置 索引时复用的键缓冲 */
+    private int[] positionKeys = new int[16];
+    private boolean entitiesChanged = false;
+    /** 可堆叠物品的合并索引 (物品注册 ID -> NBT 小桶)，无 NBT 的物品合并时不分配合并键 */
+    private final MergeIndex<Group> mergeIndex = new MergeIndex<>();
+    /**
+     * 显示信息缓存 (按合并键，LRU).
+     * 同类物品反复出现、被拾取时 (如刷怪塔) 复用物品栈副本与排序键，只有物品或 NBT 真正变化时才重新复制。
+     */
+    private final Map<MergeKey, Display> displayCache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<MergeKey, Display> eldest) {
+            return size() > DISPLAY_CACHE_SIZE;
+        }
+    };
+    /** 分组列表：[0, orderedCount) 精确有序，其后的元素均不小于前缀中的元素，但彼此之间无序 */
+    private final List<Group> order = new ArrayList<>();
+    private int orderedCount = 0;
+
+    /**
+     * RARE_ONLY 分类缓存：合并键 (Item + NBT) -> 是否隐藏.
+     * 同类物品反复出现，缓存后过滤只需一次哈希查找；白名单变化或资源重载时整体失效。
+     */
+    private final Map<MergeKey, Boolean> hideCache = new HashMap<>();
+    /** 分类版本，缓存失效时递增，分组据此判断自身的分类结果是否过期 */
+    private int classStamp = 0;
+    private int seenWhitelistVersion = -1;
+    private int seenResourceVersion = -1;
+
+    // --- 排序状态 ---
+    private Config.SortMode sortMode = Config.SortMode.RARITY;
+    private Comparator<Group> comparator = VISUAL_COMPARATOR;
+    /** 当前使用的估值表，引用变化时重新计算各分组的单价并完整重排 */
+    private Map<ResourceLocation, Integer> itemValues = Map.of();
+    private boolean valuesChanged = false;
+
+    /** 扫描序号，用于标记本次扫描中仍然存在的实体 */
+    private int scanStamp = 0;
+    /** 分组 ID 分配器 */
+    private int nextEntryId = 0;
+    /** 已发布的快照代数 */
+    private long generation = 0;
+    /** 最近一次发布的快照是否为部分采集的结果 */
+    private boolean publishedPartial = false;
+
+    // --- 本次扫描的变化 (发布后清空) ---
+    private final List<Group> added = new ArrayList<>();
+    private final List<Group> removed = new ArrayList<>();
+    private final List<Group> changed = new ArrayList<>();
 
     /**
      * 物品列表排序比较器.
@@ -29,77 +174,639 @@ public class LootScanner {
      * 稀有度 (Rarity): 越高越前
      * 附魔 (Enchanted): 有附魔优先
      * 名称 (Name): 字典序
-     * 实体ID (Entity ID): 保持列表稳定性
+     * 分组ID (Entry ID): 按出现顺序，保持列表稳定性
+     * <p>
+     * 前三级均使用分组创建时预计算的排序键，比较过程只有 long 与 String 比较，不构造任何 Component。
      */
-    private static final Comparator<VisualItemEntry> VISUAL_COMPARATOR = (e1, e2) -> {
-        ItemStack s1 = e1.getItem();
-        ItemStack s2 = e2.getItem();
+    private static final Comparator<Group> VISUAL_COMPARATOR = (g1, g2) -> {
+        int rankDiff = Long.compare(g1.rankKey, g2.rankKey);
+        if (rankDiff != 0) return rankDiff;
+
+        int nameDiff = g1.nameKey.compareTo(g2.nameKey);
+        if (nameDiff != 0) return nameDiff;
 
-        int rDiff = s2.getRarity().ordinal() - s1.getRarity().ordinal();
-        if (rDiff != 0) return rDiff;
+        return Integer.compare(g1.entryId, g2.entryId);
+    };
 
-        boolean enc1 = s1.isEnchanted();
-        boolean enc2 = s2.isEnchanted();
-        if (enc1 != enc2) return enc1 ? -1 : 1;
+    /** 距离排序：最近的源实体越近越前，其余按稀有度顺序 */
+    private static final Comparator<Group> DISTANCE_COMPARATOR = (g1, g2) -> {
+        int distDiff = Double.compare(g1.nearestDistanceSqr(), g2.nearestDistanceSqr());
+        return distDiff != 0 ? distDiff : VISUAL_COMPARATOR.compare(g1, g2);
+    };
 
-        int nameDiff = s1.getHoverName().getString().compareTo(s2.getHoverName().getString());
-        if (nameDiff != 0) return nameDiff;
+    /** 数量排序：总数越多越前 */
+    private static final Comparator<Group> COUNT_COMPARATOR = (g1, g2) -> {
+        int countDiff = Integer.compare(g2.count, g1.count);
+        return countDiff != 0 ? countDiff : VISUAL_COMPARATOR.compare(g1, g2);
+    };
+
+    /** 估值排序：单价 × 总数越高越前 */
+    private static final Comparator<Group> VALUE_COMPARATOR = (g1, g2) -> {
+        int valueDiff = Long.compare(g2.totalValue(), g1.totalValue());
+        return valueDiff != 0 ? valueDiff : VISUAL_COMPARATOR.compare(g1, g2);
+    };
 
-        return Integer.compare(e1.getPrimaryId(), e2.getPrimaryId());
+    /** 组内成员按距离排序，单个拾取与距离排序均以此为准 */
+    private static final Comparator<Member> MEMBER_COMPARATOR = (m1, m2) -> {
+        int distDiff = Double.compare(m1.distanceSqr, m2.distanceSqr);
+        return distDiff != 0 ? distDiff : Integer.compare(m1.entityId, m2.entityId);
     };
 
     /**
-     * 扫描并生成可视化的物品列表.
+     * 采集本 tick 的扫描输入并提交给后台线程 (主线程调用).
+     * <p>
+     * 玩家或世界不存在时提交空输入，后台处理后会发布清空列表的快照。
+     * 扫描结果发生变化时，新快照在后台线程中放入交接槽，由主线程调用 {@link #poll()} 取走。
+     * </p>
      *
      * @param mc Minecraft 实例
      * @param filterMode 当前过滤模式
-     * @return 排序并合并后的物品列表
+     * @param orderedLimit 至少需要精确排序的条目数 (选中项与可见窗口之后再留一定余量)
+     * @return false 如果上一次扫描仍在后台执行，本次未提交
      */
-    public static List<VisualItemEntry> scan(Minecraft mc, Core.FilterMode filterMode) {
-        if (mc.player == null || mc.level == null) return new ArrayList<>();
+    public boolean submit(Minecraft mc, Core.FilterMode filterMode, int orderedLimit) {
+        if (!busy.compareAndSet(false, true)) return false;
 
-        AABB area = mc.player.getBoundingBox().inflate(EXPAND_XZ, EXPAND_Y, EXPAND_XZ);
-        List<ItemEntity> rawEntities = mc.level.getEntitiesOfClass(ItemEntity.class, area, entity ->
-                entity.isAlive() && !entity.getItem().isEmpty()
-        );
+        ScanInput input;
+        try {
+            input = capture(mc, filterMode, orderedLimit);
+        } catch (RuntimeException e) {
+            busy.set(false);
+            throw e;
+        }
+
+        worker.execute(() -> {
+            try {
+                ScanSnapshot snapshot = process(input);
+                if (snapshot != null) handOff(snapshot);
+            } catch (RuntimeException e) {
+                LOGGER.error("Loot scan failed", e);
+            } finally {
+                busy.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 取走后台发布的最新快照 (主线程调用).
+     * <p>
+     * 后台可能在两次调用之间发布多份快照；尚未被取走的快照不会被直接覆盖，其增量与变化掩码会合并进新快照，
+     * 因此返回的快照总是相对上一次取走的快照描述变化。
+     * </p>
+     *
+     * @return 新快照；自上次调用以来没有发布时返回 null
+     */
+    public ScanSnapshot poll() {
+        return unconsumed.getAndSet(null);
+    }
+
+    /** 放入交接槽，与尚未被取走的快照合并 (后台线程) */
+    private void handOff(ScanSnapshot snapshot) {
+        while (true) {
+            ScanSnapshot pending = unconsumed.get();
+            ScanSnapshot merged = pending == null ? snapshot : snapshot.mergeAfter(pending);
+            if (unconsumed.compareAndSet(pending, merged)) return;
+        }
+    }
 
-        List<VisualItemEntry> unstackableList = new ArrayList<>();
-        Map<MergeKey, VisualItemEntry> mergedMap = new HashMap<>();
+    /**
+     * 设置采集时排除的实体 (主线程调用).
+     * 被排除的实体立即从列表中移除，不等待消失宽限期；不再被排除后作为新实体重新加入。
+     */
+    public void setExcluded(IntPredicate excluded) {
+        this.excluded = excluded;
+    }
+
+    /**
+     * 通知扫描器资源已重载 (主线程调用).
+     * 分类缓存与显示信息缓存会在下一次后台扫描开始时失效。
+     */
+    public static void onResourcesReloaded() {
+        RESOURCE_VERSION.incrementAndGet();
+    }
+
+    // =========================================
+    //               主线程：采集
+    // =========================================
+
+    private ScanInput capture(Minecraft mc, Core.FilterMode filterMode, int orderedLimit) {
+        tracker.tick(mc.level);
+        if (mc.player == null || mc.level == null) {
+            // 空输入会清空所有成员，离开记录一并丢弃
+            tracker.drainRemoved();
+            return ScanInput.EMPTY;
+        }
+
+        // 按退出范围 (拾取范围 + 退出余量) 查询，再逐个判定是否处于进入范围 (拾取范围 - 进入余量)
+        // 收集者模式：球形范围查询已完成精确的距离判定，且结果由近到远排列
+        double px = mc.player.getX(), py = mc.player.getY(), pz = mc.player.getZ();
+        AABB enterArea = null, exitArea = null;
+        double enterRadiusSqr = 0;
+        List<EntityTracker.Tracked> candidates;
+        boolean nearestFirst = Config.Baked.collectorMode;
+        if (nearestFirst) {
+            double radius = Config.Baked.collectorRadius;
+            double enterRadius = Math.max(0, radius - ENTER_MARGIN);
+            enterRadiusSqr = enterRadius * enterRadius;
+            candidates = tracker.queryNearest(px, py, pz, radius + EXIT_MARGIN);
+        } else {
+            AABB area = mc.player.getBoundingBox().inflate(EXPAND_XZ, EXPAND_Y, EXPAND_XZ);
+            enterArea = area.deflate(ENTER_MARGIN);
+            exitArea = area.inflate(EXIT_MARGIN);
+            candidates = tracker.query(exitArea);
+        }
 
-        for (ItemEntity entity : rawEntities) {
-            ItemStack stack = entity.getItem();
+        long gameTime = mc.level.getGameTime();
+        if (roundStartTick == Long.MIN_VALUE) roundStartTick = gameTime;
+        List<EntityTracker.Tracked> selected = selectWithinBudget(candidates, nearestFirst, px, py, pz);
+        boolean partial = selected != candidates && roundPending;
 
-            if (filterMode == Core.FilterMode.RARE_ONLY && shouldHide(stack)) {
+        ScanInput input = new ScanInput(filterMode, Config.Baked.sortMode, Config.Baked.itemValues,
+                px, py, pz, orderedLimit, gameTime, selected.size());
+        int[] removedIds = tracker.drainRemoved();
+        int removedCount = removedIds.length;
+        for (EntityTracker.Tracked tracked : selected) {
+            Entity entity = tracked.entity;
+            if (excluded.test(entity.getId())) {
+                // 等待拾取确认的实体立即从列表中移除，不等待宽限期
+                if (removedCount == removedIds.length) removedIds = Arrays.copyOf(removedIds, Math.max(16, removedCount * 2));
+                removedIds[removedCount++] = entity.getId();
                 continue;
             }
+            LootProvider<Entity> provider = tracked.provider;
+            if (!provider.isLootable(entity)) continue;
 
-            // 不可堆叠物品不参与合并，直接加入列表
-            if (!stack.isStackable()) {
-                unstackableList.add(new VisualItemEntry(entity));
+            // 候选列表按格子粒度返回，此处进行精确判定 (与 getEntitiesOfClass 的条件一致)
+            boolean inside;
+            if (enterArea != null) {
+                AABB box = entity.getBoundingBox();
+                if (!box.intersects(exitArea)) continue;
+                inside = box.intersects(enterArea);
             } else {
-                // 可堆叠物品通过 Key 进行 O(1) 聚合
-                MergeKey key = new MergeKey(stack);
-                mergedMap.compute(key, (k, existingEntry) -> {
-                    if (existingEntry == null) {
-                        return new VisualItemEntry(entity);
-                    } else {
-                        existingEntry.tryMerge(entity);
-                        return existingEntry;
-                    }
-                });
+                inside = tracked.distanceSqr <= enterRadiusSqr;
             }
+
+            ItemStack stack = tracked.displayStack();
+            if (stack.isEmpty()) continue;
+            input.add(entity, provider, stack, provider.getCount(entity, stack), inside);
+        }
+
+        if (partial) {
+            // 本轮尚未完成，部分实体还没有被看到，暂不清理
+            input.finish(true, Long.MIN_VALUE, Arrays.copyOf(removedIds, removedCount));
+        } else {
+            // 一轮完成：本轮开始前 (再加宽限期) 之后都未出现过的成员才被清理
+            input.finish(false, roundStartTick - GRACE_TICKS, Arrays.copyOf(removedIds, removedCount));
+            round++;
+            roundStartTick = Long.MIN_VALUE;
+        }
+        return input;
+    }
+
+    /**
+     * 按扫描预算挑选本 tick 采集的候选实体.
+     * <p>
+     * 候选数量未超出预算时直接返回原列表。否则以快速选择挑出最近的一部分实体 ({@link #PRIORITY_SHARE})，
+     * 每 tick 都会采集，保证身边的掉落物及时响应；剩余预算从轮转游标处继续，分给本轮尚未采集过的实体，
+     * 每个候选实体在一轮内至少被采集一次。主线程开销为 O(候选数)，不随掉落物数量做完整排序。
+     * 结束时 {@link #roundPending} 表示本轮是否仍有未采集的实体。
+     * </p>
+     *
+     * @param nearestFirst 候选是否已按距离由近到远排序 (收集者模式)，此时直接取前缀作为最近的实体
+     */
+    private List<EntityTracker.Tracked> selectWithinBudget(List<EntityTracker.Tracked> candidates, boolean nearestFirst,
+                                                           double px, double py, double pz) {
+        int n = candidates.size();
+        int entityBudget = Config.Baked.scanBudgetEntities;
+        long timeBudget = Config.Baked.scanBudgetMicros * 1000L;
+        roundPending = false;
+        if ((entityBudget == 0 || n <= entityBudget) && timeBudget == 0) return candidates;
+
+        int limit = entityBudget == 0 ? Integer.MAX_VALUE : entityBudget;
+        int priority = Math.min(n, entityBudget == 0 ? PRIORITY_MIN : entityBudget / PRIORITY_SHARE);
+        long deadline = timeBudget == 0 ? Long.MAX_VALUE : System.nanoTime() + timeBudget;
+        budgetSelection.clear();
+
+        // 1. 最近的 priority 个实体
+        //    收集者模式的候选已由球形查询按距离排好序，直接取前缀，不再计算距离
+        //    否则使用打包键 (高 32 位为距离平方的浮点位模式，非负浮点数的位模式与数值同序；低 32 位为候选下标)
+        //    只做快速选择挑出前缀，期望 O(n)，不对整个候选列表排序
+        if (nearestFirst) {
+            for (int k = 0; k < priority; k++) {
+                EntityTracker.Tracked tracked = candidates.get(k);
+                tracked.scanRound = round;
+                budgetSelection.add(tracked);
+            }
+        } else {
+            if (sortKeys.length < n) sortKeys = new long[Math.max(n, sortKeys.length * 2)];
+            for (int i = 0; i < n; i++) {
+                float distSqr = (float) candidates.get(i).entity.distanceToSqr(px, py, pz);
+                sortKeys[i] = ((long) Float.floatToRawIntBits(distSqr) << 32) | i;
+            }
+            PartialSort.selectSmallest(sortKeys, n, priority);
+            for (int k = 0; k < priority; k++) {
+                EntityTracker.Tracked tracked = candidates.get((int) sortKeys[k]);
+                tracked.scanRound = round;
+                budgetSelection.add(tracked);
+            }
+        }
+
+        // 2. 其余预算从上次停下的位置继续轮转，跳过本轮已采集的实体
+        //    时间预算只约束轮转部分，且每 tick 至少推进一批，避免最近的实体占满预算导致远处实体饿死
+        int rotated = 0;
+        int step = 0;
+        int index = rotationCursor % n;
+        for (; step < n; step++, index = index + 1 == n ? 0 : index + 1) {
+            EntityTracker.Tracked tracked = candidates.get(index);
+            if (tracked.scanRound == round) continue;
+            if (budgetSelection.size() >= limit
+                    || (rotated >= PRIORITY_MIN && (rotated & 15) == 0 && System.nanoTime() > deadline)) {
+                break;
+            }
+            rotated++;
+            tracked.scanRound = round;
+            budgetSelection.add(tracked);
+        }
+        rotationCursor = index;
+        // 完整走完一圈说明所有候选都已在本轮采集过；提前停下时保守地认为本轮未完成，下一次采集会确认
+        roundPending = step < n;
+        return budgetSelection;
+    }
+
+    // =========================================
+    //               后台线程：过滤、合并与排序
+    // =========================================
+
+    /**
+     * 根据输入增量更新分组.
+     * @return 新快照；与上一次相比无变化时返回 null
+     */
+    private ScanSnapshot process(ScanInput input) {
+        scanStamp++;
+        validateCaches();
+        updateItemValues(input.itemValues);
+
+        // 离开世界的实体 (被拾取、消失、切换世界) 立即移除，不等待宽限期
+        for (int entityId : input.removedIds) {
+            Member member = members.remove(entityId);
+            if (member != null) detach(member);
         }
 
-        List<VisualItemEntry> finalResult = new ArrayList<>(unstackableList.size() + mergedMap.size());
-        finalResult.addAll(unstackableList);
-        finalResult.addAll(mergedMap.values());
-        finalResult.sort(VISUAL_COMPARATOR);
+        boolean rareOnly = input.filterMode == Core.FilterMode.RARE_ONLY;
+        for (int i = 0; i < input.length(); i++) {
+            ItemStack stack = input.stacks[i];
+            Member member = members.get(input.ids[i]);
 
-        return finalResult;
+            // 物品堆叠被替换 (实体数据同步总是给出新实例)：物品与 NBT 未变时只是数量变化，否则移到新分组
+            boolean regrouped = false;
+            if (member != null && stack != member.stack) {
+                if (member.group.key.matches(input.providers[i], stack)) {
+                    member.stack = stack;
+                } else {
+                    members.remove(member.entityId);
+                    detach(member);
+                    member = null;
+                    regrouped = true;
+                }
+            }
+
+            if (member != null && rareOnly && isHidden(member.group)) {
+                // 已知实体直接使用所属分组的分类结果；被过滤不属于范围抖动，直接移除
+                stale.add(member);
+                continue;
+            }
+
+            int count = input.counts[i];
+            if (member == null) {
+                // 只在退出余量内的实体不加入列表 (已在列表中、仅物品变化的实体除外)
+                if (!input.inside[i] && !regrouped) continue;
+                member = attach(input.ids[i], input.providers[i], stack, count, rareOnly);
+                if (member == null) continue;
+            } else if (count != member.count) {
+                // 原版会合并附近的同类掉落物，只需修正分组总数
+                member.group.count += count - member.count;
+                member.count = count;
+                touch(member.group);
+            }
+            markSeen(member, input.gameTime);
+            double distanceSqr = input.distanceSqr(i);
+            if (distanceSqr != member.distanceSqr) {
+                member.distanceSqr = distanceSqr;
+                markUnsorted(member.group);
+            }
+        }
+
+        for (Member member : stale) {
+            if (members.remove(member.entityId) != null) detach(member);
+        }
+        stale.clear();
+
+        // 清理超出宽限期仍未出现的实体 (离开退出范围，或暂时无法被扫描到)；分轮采集时只在一轮完成后清理
+        // 链表按最近出现时间排列，只需从最旧的成员开始移除，直到遇到宽限期内出现过的成员
+        while (oldestSeen != null && oldestSeen.lastSeenTick < input.sweepBefore) {
+            Member member = oldestSeen;
+            members.remove(member.entityId);
+            detach(member);
+        }
+
+        // 只为成员或距离发生变化的分组维护组内的距离顺序；最近实体发生变化的分组需要重新发布 (新分组本次必然发布)
+        for (Group group : unsortedGroups) {
+            group.unsorted = false;
+            if (group.sortMembers()) touch(group);
+        }
+        unsortedGroups.clear();
+
+        return publish(input);
     }
 
     /**
-     * 判断物品是否应在 RARE_ONLY 模式下隐藏.
+     * 将新实体加入对应的分组.
+     * 可堆叠物品先在合并索引中查找已有分组，命中时不分配合并键；只有需要新建分组或查询分类缓存时才构造 {@link MergeKey}。
+     *
+     * @return 新成员；RARE_ONLY 模式下被过滤时返回 null
+     */
+    private Member attach(int entityId, LootProvider<?> provider, ItemStack stack, int count, boolean rareOnly) {
+        // 不可堆叠物品不参与合并，每个实体独占一行
+        boolean stackable = stack.isStackable();
+        Group group = stackable ? mergeIndex.get(provider, stack.getItem(), stack.getTag()) : null;
+        if (group != null) {
+            if (rareOnly && isHidden(group)) return null;
+            touch(group);
+        } else {
+            MergeKey key = new MergeKey(provider, stack);
+            if (rareOnly && isHidden(key, stack)) return null;
+            group = createGroup(key, stack);
+            if (stackable) mergeIndex.put(provider, key.item, key.tag, group);
+        }
+
+        Member member = new Member(entityId, group, stack, count);
+        group.add(member);
+        markUnsorted(group);
+        members.put(entityId, member);
+        entitiesChanged = true;
+        return member;
+    }
+
+    private Group createGroup(MergeKey key, ItemStack stack) {
+        Display display = displayCache.get(key);
+        if (display == null) {
+            display = new Display(stack.copy());
+            displayCache.put(key, display);
+        }
+
+        Group group = new Group(nextEntryId++, key, display);
+        group.unitValue = lookupValue(display.stack);
+        // 新分组本次必然发布，无需再登记为变化；在发布阶段插入排序列表
+        group.touchedStamp = scanStamp;
+        added.add(group);
+        return group;
+    }
+
+    private void detach(Member member) {
+        entitiesChanged = true;
+        unlinkSeen(member);
+        Group group = member.group;
+        group.remove(member);
+        // swap-remove 打乱了组内顺序
+        markUnsorted(group);
+        if (group.isEmpty()) {
+            // 仅当分组仍登记在合并索引中时才移除 (不可堆叠的分组从未登记)
+            mergeIndex.remove(group.key.provider, group.key.item, group.key.tag, group);
+            removed.add(group);
+        } else {
+            touch(group);
+        }
+    }
+
+    /** 登记需要重新排序成员的分组，每次扫描每个分组只登记一次；不足两个成员的分组无需排序 */
+    private void markUnsorted(Group group) {
+        if (group.unsorted || group.members.size() < 2) return;
+        group.unsorted = true;
+        unsortedGroups.add(group);
+    }
+
+    /** 记录成员在本次扫描中出现，移到出现时间链表的末尾 */
+    private void markSeen(Member member, long gameTime) {
+        member.lastSeenTick = gameTime;
+        if (newestSeen == member) return;
+        unlinkSeen(member);
+        member.older = newestSeen;
+        if (newestSeen != null) newestSeen.newer = member;
+        else oldestSeen = member;
+        newestSeen = member;
+    }
+
+    private void unlinkSeen(Member member) {
+        Member older = member.older, newer = member.newer;
+        if (older != null) older.newer = newer;
+        else if (oldestSeen == member) oldestSeen = newer;
+        if (newer != null) newer.older = older;
+        else if (newestSeen == member) newestSeen = older;
+        member.older = null;
+        member.newer = null;
+    }
+
+    /** 登记分组内容变化，每次扫描每个分组只登记一次 */
+    private void touch(Group group) {
+        if (group.touchedStamp == scanStamp) return;
+        group.touchedStamp = scanStamp;
+        changed.add(group);
+    }
+
+    /** 为变化的分组构建新视图，维护排序并生成快照 */
+    private ScanSnapshot publish(ScanInput input) {
+        boolean orderChanged = reorder(input.sortMode, input.orderedLimit);
+        // 分轮采集的状态变化也需要发布，否则快照会一直停留在 "部分采集" 状态
+        boolean partialChanged = input.partial != publishedPartial;
+        if (added.isEmpty() && removed.isEmpty() && changed.isEmpty() && !orderChanged && !partialChanged) return null;
+        publishedPartial = input.partial;
+
+        int changeMask = 0;
+        if (!added.isEmpty() || !removed.isEmpty()) changeMask |= ScanSnapshot.CHANGE_MEMBERSHIP | ScanSnapshot.CHANGE_ORDER;
+        if (orderChanged) changeMask |= ScanSnapshot.CHANGE_ORDER;
+        if (!changed.isEmpty()) changeMask |= ScanSnapshot.CHANGE_COUNTS;
+
+        List<VisualItemEntry> removedViews = new ArrayList<>(removed.size());
+        for (Group group : removed) {
+            if (group.view != null) removedViews.add(group.view);
+        }
+        List<VisualItemEntry> addedViews = rebuildViews(added);
+        List<VisualItemEntry> changedViews = rebuildViews(changed);
+
+        List<VisualItemEntry> entries = new ArrayList<>(order.size());
+        if (positionKeys.length < order.size()) positionKeys = new int[Math.max(16, order.size() * 2)];
+        for (Group group : order) {
+            positionKeys[entries.size()] = group.entryId;
+            entries.add(group.view);
+        }
+        EntityIndex positions = EntityIndex.ofPositions(positionKeys, entries.size());
+
+        if (entitiesChanged) {
+            entityIndex = members.freeze(member -> member.group.entryId);
+            entitiesChanged = false;
+        }
+
+        added.clear();
+        removed.clear();
+        changed.clear();
+
+        return new ScanSnapshot(++generation, changeMask, input.partial, Collections.unmodifiableList(entries), positions,
+                entityIndex, new ScanDelta(addedViews, removedViews, changedViews));
+    }
+
+    /**
+     * 增量维护分组顺序.
+     * <p>
+     * 0. 排序模式或估值表变化时完整重排一次。<br>
+     * 1. 移除已清空的分组，保持相对顺序，有序前缀随之缩短。<br>
+     * 2. 动态排序模式下，在上一次的顺序上做插入排序 (列表始终完全有序)。<br>
+     * 3. 新分组若小于有序前缀的末尾，二分插入前缀；否则追加到无序尾部。<br>
+     * 4. 稀有度模式下，有序前缀短于需要的长度时，从尾部选出最小的若干项补齐 ({@link PartialSort})。
+     * </p>
+     * @return true 如果列表顺序发生了变化
+     */
+    private boolean reorder(Config.SortMode mode, int orderedLimit) {
+        boolean changedOrder = false;
+        boolean resort = mode != sortMode || valuesChanged;
+        if (resort) {
+            sortMode = mode;
+            comparator = comparatorFor(mode);
+            valuesChanged = false;
+        }
+
+        if (!removed.isEmpty()) {
+            int write = 0;
+            int prefix = orderedCount;
+            for (int read = 0; read < order.size(); read++) {
+                Group group = order.get(read);
+                if (group.isEmpty()) {
+                    if (read < orderedCount) prefix--;
+                    continue;
+                }
+                order.set(write++, group);
+            }
+            order.subList(write, order.size()).clear();
+            orderedCount = prefix;
+            changedOrder = true;
+        }
+
+        if (resort) {
+            for (Group group : added) {
+                if (!group.isEmpty()) order.add(group);
+            }
+            order.sort(comparator);
+            orderedCount = order.size();
+            return true;
+        }
+
+        boolean dynamic = sortMode != Config.SortMode.RARITY;
+        if (dynamic && PartialSort.insertionSort(order, comparator)) {
+            changedOrder = true;
+        }
+
+        for (Group group : added) {
+            if (group.isEmpty()) continue;
+            boolean fullyOrdered = orderedCount == order.size();
+            if (orderedCount > 0 && comparator.compare(group, order.get(orderedCount - 1)) < 0) {
+                int pos = Collections.binarySearch(order.subList(0, orderedCount), group, comparator);
+                order.add(-(pos + 1), group);
+                orderedCount++;
+            } else {
+                order.add(group);
+                // 列表原本完全有序且新分组不小于末尾元素，追加后仍然完全有序
+                if (fullyOrdered) orderedCount++;
+            }
+            changedOrder = true;
+        }
+
+        int limit = dynamic ? order.size() : Math.min(orderedLimit, order.size());
+        if (orderedCount < limit) {
+            orderedCount = PartialSort.extendPrefix(order, orderedCount, limit, comparator);
+            changedOrder = true;
+        }
+        return changedOrder;
+    }
+
+    private static Comparator<Group> comparatorFor(Config.SortMode mode) {
+        return switch (mode) {
+            case DISTANCE -> DISTANCE_COMPARATOR;
+            case COUNT -> COUNT_COMPARATOR;
+            case VALUE -> VALUE_COMPARATOR;
+            default -> VISUAL_COMPARATOR;
+        };
+    }
+
+    // =========================================
+    //               估值表
+    // =========================================
+
+    /** 估值表变化 (配置重载) 时重新计算所有分组的单价 */
+    private void updateItemValues(Map<ResourceLocation, Integer> values) {
+        if (values == itemValues) return;
+        itemValues = values;
+        for (Group group : order) group.unitValue = lookupValue(group.displayStack);
+        valuesChanged = true;
+    }
+
+    private int lookupValue(ItemStack stack) {
+        if (itemValues.isEmpty()) return 0;
+        ResourceLocation id = ForgeRegistries.ITEMS.getKey(stack.getItem());
+        Integer value = id == null ? null : itemValues.get(id);
+        return value == null ? 0 : value;
+    }
+
+    private static List<VisualItemEntry> rebuildViews(List<Group> groups) {
+        List<VisualItemEntry> views = new ArrayList<>(groups.size());
+        for (Group group : groups) {
+            // 同一次扫描中变化后又被清空的分组由 removed 负责报告
+            if (group.isEmpty()) continue;
+            group.view = group.buildView();
+            views.add(group.view);
+        }
+        return Collections.unmodifiableList(views);
+    }
+
+    // =========================================
+    //               RARE_ONLY 分类缓存
+    // =========================================
+
+    /** 白名单或资源版本变化时清空缓存 */
+    private void validateCaches() {
+        int whitelistVersion = FilterWhitelist.INSTANCE.getVersion();
+        int resourceVersion = RESOURCE_VERSION.get();
+        if (whitelistVersion == seenWhitelistVersion && resourceVersion == seenResourceVersion) return;
+
+        hideCache.clear();
+        classStamp++;
+        // 名称随语言变化，已有分组沿用旧名称直到重建
+        if (resourceVersion != seenResourceVersion) displayCache.clear();
+
+        seenWhitelistVersion = whitelistVersion;
+        seenResourceVersion = resourceVersion;
+    }
+
+    private boolean isHidden(Group group) {
+        if (group.classStamp != classStamp) {
+            group.hidden = isHidden(group.key, group.displayStack);
+            group.classStamp = classStamp;
+        }
+        return group.hidden;
+    }
+
+    private boolean isHidden(MergeKey key, ItemStack stack) {
+        Boolean hidden = hideCache.get(key);
+        if (hidden == null) {
+            // 正常情况下物品种类有限，超过上限说明 NBT 高度离散，直接重建即可
+            if (hideCache.size() >= HIDE_CACHE_SIZE) hideCache.clear();
+            hidden = shouldHide(stack);
+            hideCache.put(key, hidden);
+        }
+        return hidden;
+    }
+
+    /**
+     * 判断物品是否应在 RARE_ONLY 模式下隐藏 (后台线程调用，白名单读取是线程安全的).
      */
     private static boolean shouldHide(ItemStack stack) {
         if (FilterWhitelist.INSTANCE.contains(stack)) return false;
@@ -108,17 +815,150 @@ public class LootScanner {
                 && !Utils.shouldShowTooltip(stack);
     }
 
+    /** 单个被扫描实体的记录：所属分组、上一次看到的物品堆叠与数量及到玩家的距离 */
+    private static class Member {
+        final int entityId;
+        final Group group;
+        /** 上一次扫描时的物品堆叠实例，实例未变化时无需比较物品与 NBT */
+        ItemStack stack;
+        int count;
+        /** 最近一次被扫描到时的世界时间 (tick) */
+        long lastSeenTick;
+        double distanceSqr;
+        /** 在分组成员列表中的下标，用于 O(1) 删除 */
+        int index;
+        /** 出现时间链表中的前后成员 (见 {@link #oldestSeen}) */
+        Member older, newer;
+
+        Member(int entityId, Group group, ItemStack stack, int count) {
+            this.entityId = entityId;
+            this.group = group;
+            this.stack = stack;
+            this.count = count;
+        }
+    }
+
+    /**
+     * 合并分组 (后台线程内部的可变状态).
+     * 对外发布的是 {@link #view} 不可变视图，分组内容变化时在发布阶段重新构建。
+     */
+    private static class Group {
+        final int entryId;
+        final MergeKey key;
+        final ItemStack displayStack;
+        final long rankKey;
+        final String nameKey;
+
+        final List<Member> members = new ArrayList<>();
+        int count;
+        /** 估值表中的单价 */
+        int unitValue;
+        int touchedStamp;
+        /** 是否已登记在 {@link #unsortedGroups} 中 */
+        boolean unsorted;
+        /** RARE_ONLY 分类结果及其对应的分类版本 */
+        boolean hidden;
+        int classStamp = -1;
+        /** 最近一次发布的视图 */
+        VisualItemEntry view;
+
+        Group(int entryId, MergeKey key, Display display) {
+            this.entryId = entryId;
+            this.key = key;
+            this.displayStack = display.stack;
+            this.rankKey = display.rankKey;
+            this.nameKey = display.nameKey;
+        }
+
+        void add(Member member) {
+            member.index = members.size();
+            members.add(member);
+            count += member.count;
+        }
+
+        void remove(Member member) {
+            // swap-remove: 用末尾元素填补空位，O(1)
+            Member last = members.remove(members.size() - 1);
+            if (last != member) {
+                last.index = member.index;
+                members.set(member.index, last);
+            }
+            count -= member.count;
+        }
+
+        boolean isEmpty() { return members.isEmpty(); }
+
+        /** 最近的源实体到玩家的距离平方 (成员已按距离排序) */
+        double nearestDistanceSqr() {
+            return members.isEmpty() ? Double.MAX_VALUE : members.get(0).distanceSqr;
+        }
+
+        long totalValue() { return (long) unitValue * count; }
+
+        /**
+         * 在上一次的顺序上按距离重新排序成员.
+         * @return true 如果成员顺序发生了变化
+         */
+        boolean sortMembers() {
+            if (members.size() < 2 || !PartialSort.insertionSort(members, MEMBER_COMPARATOR)) return false;
+            for (int i = 0; i < members.size(); i++) members.get(i).index = i;
+            return true;
+        }
+
+        /** 构建不可变视图，源实体按距离由近到远排列 (单个拾取优先拾取最近的) */
+        VisualItemEntry buildView() {
+            int size = members.size();
+            int[] ids = new int[size];
+            for (int i = 0; i < size; i++) ids[i] = members.get(i).entityId;
+            return new VisualItemEntry(entryId, key.provider.getId(), displayStack, ids, count);
+        }
+    }
+
+    /** 显示用物品栈副本及其预计算排序键，由同一合并键的所有分组共享 (只读) */
+    private static class Display {
+        final ItemStack stack;
+        final long rankKey;
+        final String nameKey;
+
+        Display(ItemStack stack) {
+            this.stack = stack;
+            this.rankKey = VisualItemEntry.computeRankKey(stack);
+            this.nameKey = VisualItemEntry.computeNameKey(stack);
+        }
+    }
+
     /**
      * 用于 Map 的复合键.
      * 确保只有 Item 相同且 NBT Tag 也完全一致的物品才会被合并。
+     * 哈希与比较优先使用 {@link NbtFingerprint} 缓存的 64 位指纹，仅在指纹相同时才完整比较标签。
      */
     private static class MergeKey {
+        private final LootProvider<?> provider;
         private final Item item;
         private final CompoundTag tag;
+        private final long fingerprint;
 
-        public MergeKey(ItemStack stack) {
+        public MergeKey(LootProvider<?> provider, ItemStack stack) {
+            this.provider = provider;
             this.item = stack.getItem();
             this.tag = stack.getTag();
+            this.fingerprint = NbtFingerprint.of(tag);
+        }
+
+        /**
+         * 物品堆叠是否仍属于该合并键 (用于已知实体的变化检测).
+         * 客户端每次同步数量都会创建新的物品栈与标签实例，因此先比较指纹，指纹相同才完整比较标签。
+         */
+        boolean matches(LootProvider<?> provider, ItemStack stack) {
+            if (provider != this.provider || stack.getItem() != item) return false;
+            return sameTag(stack.getTag(), NbtFingerprint.of(stack.getTag()));
+        }
+
+        /** 指纹不同必然不相等，无需遍历标签树；指纹相同时同一实例直接判定相等，否则完整比较以排除哈希碰撞 */
+        private boolean sameTag(CompoundTag other, long otherFingerprint) {
+            if (tag == other) return true;
+            if (fingerprint != otherFingerprint) return false;
+            return Objects.equals(tag, other);
         }
 
         @Override
@@ -126,15 +966,14 @@ public class LootScanner {
             if (this == o) return true;
             if (o == null || getClass() != o.getClass()) return false;
             MergeKey mergeKey = (MergeKey) o;
-            if (item != mergeKey.item) return false;
-            return Objects.equals(tag, mergeKey.tag);
+            if (item != mergeKey.item || provider != mergeKey.provider) return false;
+            return sameTag(mergeKey.tag, mergeKey.fingerprint);
         }
 
         @Override
         public int hashCode() {
-            // 优化：绝大多数物品无 Tag，直接使用 Item Hash 提高性能
-            if (tag == null) return item.hashCode();
-            return 31 * item.hashCode() + tag.hashCode();
+            // 无 Tag 时指纹为 0，退化为 Item Hash；不同提供者显示同一物品的情况很少，提供者不参与哈希
+            return 31 * item.hashCode() + Long.hashCode(fingerprint);
         }
     }
 }
@@ -0,0 +1,142 @@
+package com.mohuia.better_looting.client.core;
+
+import com.mohuia.better_looting.loot.LootProvider;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.item.Item;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 可堆叠物品的两级合并索引：物品注册 ID -> (提供者, NBT) 小桶.
+ * <p>
+ * 第一级以物品的数字注册 ID 为键 ({@link IntMap}，不装箱)；每个物品下按提供者区分，
+ * 无 NBT 的物品栈直接存放在专用槽位中，查找不分配对象、不计算标签哈希。
+ * 带 NBT 的变体存放在同一物品下的小数组里，先比较 {@link NbtFingerprint} 指纹，指纹相同才完整比较标签。
+ * 刷怪塔等场景的掉落物绝大多数没有 NBT，合并只需一次整数哈希查找。
+ * </p>
+ * <p>
+ * 非线程安全，仅由扫描器后台线程访问。
+ * </p>
+ */
+final class MergeIndex<G> {
+
+    private final IntMap<Slot<G>> byItem = new IntMap<>();
+
+    /** 查找已登记的分组；不存在时返回 null */
+    G get(LootProvider<?> provider, Item item, CompoundTag tag) {
+        Slot<G> slot = find(provider, Item.getId(item));
+        if (slot == null) return null;
+        if (tag == null) return slot.untagged;
+        int i = slot.indexOf(tag, NbtFingerprint.of(tag));
+        return i < 0 ? null : slot.groups[i];
+    }
+
+    /** 登记分组 (调用方保证该键尚未登记) */
+    void put(LootProvider<?> provider, Item item, CompoundTag tag, G group) {
+        int itemId = Item.getId(item);
+        Slot<G> slot = find(provider, itemId);
+        if (slot == null) {
+            // 同一物品由不同提供者显示的情况很少，新槽位挂在链表头部
+            slot = new Slot<>(provider, byItem.get(itemId));
+            byItem.put(itemId, slot);
+        }
+        if (tag == null) {
+            slot.untagged = group;
+        } else {
+            slot.add(tag, NbtFingerprint.of(tag), group);
+        }
+    }
+
+    /** 仅当登记的分组就是 group 时才移除 */
+    void remove(LootProvider<?> provider, Item item, CompoundTag tag, G group) {
+        int itemId = Item.getId(item);
+        Slot<G> slot = find(provider, itemId);
+        if (slot == null) return;
+        if (tag == null) {
+            if (slot.untagged == group) slot.untagged = null;
+        } else {
+            int i = slot.indexOf(tag, NbtFingerprint.of(tag));
+            if (i >= 0 && slot.groups[i] == group) slot.removeAt(i);
+        }
+        if (slot.isEmpty()) unlink(itemId, slot);
+    }
+
+    private Slot<G> find(LootProvider<?> provider, int itemId) {
+        for (Slot<G> slot = byItem.get(itemId); slot != null; slot = slot.next) {
+            if (slot.provider == provider) return slot;
+        }
+        return null;
+    }
+
+    private void unlink(int itemId, Slot<G> target) {
+        Slot<G> head = byItem.get(itemId);
+        if (head == target) {
+            if (target.next == null) byItem.remove(itemId);
+            else byItem.put(itemId, target.next);
+            return;
+        }
+        for (Slot<G> slot = head; slot.next != null; slot = slot.next) {
+            if (slot.next == target) {
+                slot.next = target.next;
+                return;
+            }
+        }
+    }
+
+    /** 单个 (物品, 提供者) 下的分组：无 NBT 槽位 + 带 NBT 的小桶 */
+    private static final class Slot<G> {
+        final LootProvider<?> provider;
+        Slot<G> next;
+
+        G untagged;
+
+        CompoundTag[] tags = new CompoundTag[0];
+        long[] fingerprints = new long[0];
+        G[] groups;
+        int taggedCount = 0;
+
+        @SuppressWarnings("unchecked")
+        Slot(LootProvider<?> provider, Slot<G> next) {
+            this.provider = provider;
+            this.next = next;
+            this.groups = (G[]) new Object[0];
+        }
+
+        int indexOf(CompoundTag tag, long fingerprint) {
+            for (int i = 0; i < taggedCount; i++) {
+                // 指纹不同必然不相等；相同时同一实例直接命中，否则完整比较以排除碰撞
+                if (fingerprints[i] != fingerprint) continue;
+                if (tags[i] == tag || Objects.equals(tags[i], tag)) return i;
+            }
+            return -1;
+        }
+
+        void add(CompoundTag tag, long fingerprint, G group) {
+            if (taggedCount == tags.length) {
+                int capacity = Math.max(2, taggedCount * 2);
+                tags = Arrays.copyOf(tags, capacity);
+                fingerprints = Arrays.copyOf(fingerprints, capacity);
+                groups = Arrays.copyOf(groups, capacity);
+            }
+            tags[taggedCount] = tag;
+            fingerprints[taggedCount] = fingerprint;
+            groups[taggedCount] = group;
+            taggedCount++;
+        }
+
+        /** 与末尾元素交换后删除，桶内顺序无意义 */
+        void removeAt(int i) {
+            int last = --taggedCount;
+            tags[i] = tags[last];
+            fingerprints[i] = fingerprints[last];
+            groups[i] = groups[last];
+            tags[last] = null;
+            groups[last] = null;
+        }
+
+        boolean isEmpty() {
+            return untagged == null && taggedCount == 0;
+        }
+    }
+}
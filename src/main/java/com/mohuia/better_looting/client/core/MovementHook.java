@@ -0,0 +1,13 @@
+package com.mohuia.better_looting.client.core;
+
+/**
+ * 由 {@code MixinEntity} 注入到 {@link net.minecraft.world.entity.Entity} 的扩展接口.
+ * <p>
+ * {@link EntityTracker} 为追踪的实体挂上监听器，实体坐标每次变化 ({@code setPosRaw}) 时回调，
+ * 追踪器因此只需重新分桶真正移动过的实体，静止的掉落物不产生任何开销。未追踪的实体监听器为 null。
+ * </p>
+ */
+public interface MovementHook {
+
+    void betterLooting$setMoveListener(Runnable listener);
+}
@@ -0,0 +1,110 @@
+package com.mohuia.better_looting.client.core;
+
+import com.google.common.collect.MapMaker;
+import net.minecraft.nbt.*;
+
+import java.util.Map;
+
+/**
+ * NBT 结构指纹缓存.
+ * <p>
+ * {@link CompoundTag#hashCode()} 与 {@code equals} 每次调用都会递归遍历整棵标签树，
+ * 对于装满物品的背包、匠魂部件等重 NBT 的掉落物，合并分组时开销很大。
+ * 此类为每个 CompoundTag 实例计算一次 64 位结构哈希，并以 <b>实例身份 + 弱引用</b> 为键缓存，
+ * 标签被回收时缓存项自动失效。
+ * </p>
+ * <p>
+ * 指纹与 {@code CompoundTag.equals} 保持一致：结构相等的标签指纹必然相等 (复合标签的键顺序不影响结果)。
+ * 指纹不同即可判定不相等；指纹相同时调用方仍需完整比较以排除碰撞。
+ * 注意：缓存假定标签在计算后不再被修改，客户端实体的物品栈由网络同步创建，满足这一前提。
+ * </p>
+ */
+public final class NbtFingerprint {
+
+    /** weakKeys() 使用身份 (==) 比较键，不会触发 CompoundTag 的递归 hashCode */
+    private static final Map<CompoundTag, Long> CACHE = new MapMaker().weakKeys().makeMap();
+
+    /** 无 NBT 时的指纹 */
+    public static final long NONE = 0L;
+
+    private NbtFingerprint() {}
+
+    /**
+     * 获取标签的结构指纹.
+     *
+     * @param tag 目标标签，可为 null
+     * @return 64 位指纹；null 返回 {@link #NONE}
+     */
+    public static long of(CompoundTag tag) {
+        if (tag == null) return NONE;
+        Long cached = CACHE.get(tag);
+        if (cached != null) return cached;
+
+        long fingerprint = hash(tag);
+        // 避免与 "无 NBT" 混淆
+        if (fingerprint == NONE) fingerprint = 1L;
+        CACHE.put(tag, fingerprint);
+        return fingerprint;
+    }
+
+    // =========================================
+    //               结构哈希
+    // =========================================
+
+    private static long hash(Tag tag) {
+        long typeSeed = (long) tag.getId() * 0x9E3779B97F4A7C15L;
+
+        if (tag instanceof CompoundTag compound) {
+            // 复合标签是无序映射：对每个键值对独立混合后求和，与遍历顺序无关
+            long sum = 0;
+            for (String key : compound.getAllKeys()) {
+                sum += mix(hashString(key) * 31 + hash(compound.get(key)));
+            }
+            return mix(typeSeed ^ sum ^ compound.size());
+        }
+        if (tag instanceof ByteArrayTag bytes) {
+            long h = typeSeed;
+            for (byte b : bytes.getAsByteArray()) h = h * 31 + b;
+            return mix(h);
+        }
+        if (tag instanceof IntArrayTag ints) {
+            long h = typeSeed;
+            for (int v : ints.getAsIntArray()) h = h * 31 + v;
+            return mix(h);
+        }
+        if (tag instanceof LongArrayTag longs) {
+            long h = typeSeed;
+            for (long v : longs.getAsLongArray()) h = h * 31 + v;
+            return mix(h);
+        }
+        if (tag instanceof CollectionTag<?> list) {
+            // 列表有序：按位置累积
+            long h = typeSeed;
+            for (int i = 0; i < list.size(); i++) h = h * 31 + hash(list.get(i));
+            return mix(h);
+        }
+        if (tag instanceof StringTag) {
+            return mix(typeSeed ^ hashString(tag.getAsString()));
+        }
+        if (tag instanceof FloatTag || tag instanceof DoubleTag) {
+            return mix(typeSeed ^ Double.doubleToLongBits(((NumericTag) tag).getAsDouble()));
+        }
+        if (tag instanceof NumericTag numeric) {
+            return mix(typeSeed ^ numeric.getAsLong());
+        }
+        return mix(typeSeed);
+    }
+
+    private static long hashString(String s) {
+        long h = 1125899906842597L;
+        for (int i = 0; i < s.length(); i++) h = 31 * h + s.charAt(i);
+        return h;
+    }
+
+    /** SplitMix64 终结函数，充分打散低位差异 */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
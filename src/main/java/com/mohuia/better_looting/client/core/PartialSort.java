@@ -0,0 +1,155 @@
+package com.mohuia.better_looting.client.core;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 部分排序 (Top-K) 与增量排序工具.
+ * <p>
+ * HUD 只显示选中项与滚动位置附近的少量行。对于包含数百个不可堆叠物品的列表，
+ * 只需保证前 K 项精确有序，其余部分只需 "都不小于前 K 项"，在用户滚动到该位置时再按需排序。
+ * 排序键随时间变化的列表 (距离排序) 则使用插入排序在上一次的顺序上增量调整。
+ * </p>
+ * <p>
+ * 比较器必须是全序 (不存在两个不同元素比较结果为 0)，这样前 K 项的结果与分区过程无关，是确定的。
+ * </p>
+ */
+final class PartialSort {
+
+    /** 剩余区间较小时直接完整排序 */
+    private static final int SMALL_RANGE = 32;
+    /** 每次至少向后扩展的有序长度，避免逐行滚动时反复分区 */
+    private static final int MIN_EXTEND = 32;
+    /** 插入排序的移动预算 (每个元素平均允许的移动次数) */
+    private static final int INSERTION_BUDGET = 8;
+
+    private PartialSort() {}
+
+    /**
+     * 将列表的有序前缀扩展到至少 limit 项.
+     * <p>
+     * 前置条件：[0, from) 已有序，且其中每个元素都不大于 [from, size) 中的任何元素。<br>
+     * 后置条件：[0, 返回值) 有序，且其中每个元素都不大于其后的任何元素。
+     * </p>
+     *
+     * @param list 目标列表
+     * @param from 当前有序前缀长度
+     * @param limit 需要的有序前缀长度
+     * @return 新的有序前缀长度
+     */
+    static <T> int extendPrefix(List<T> list, int from, int limit, Comparator<? super T> cmp) {
+        int size = list.size();
+        if (from >= size) return size;
+
+        int target = Math.min(size, Math.max(limit, from + MIN_EXTEND));
+        if (target >= size || size - from <= SMALL_RANGE) {
+            list.subList(from, size).sort(cmp);
+            return size;
+        }
+
+        select(list, from, size - 1, target, cmp);
+        list.subList(from, target).sort(cmp);
+        return target;
+    }
+
+    /**
+     * 自适应插入排序.
+     * <p>
+     * 排序键随时间缓慢变化 (如玩家移动导致的距离变化) 时，上一次的顺序基本有序，
+     * 插入排序的开销为 O(n + 逆序对数)，接近线性。
+     * 元素移动次数超出预算 (如传送后顺序完全打乱) 时退化为一次完整排序，避免 O(n^2)。
+     * </p>
+     *
+     * @return true 如果列表顺序发生了变化
+     */
+    static <T> boolean insertionSort(List<T> list, Comparator<? super T> cmp) {
+        int size = list.size();
+        long budget = (long) size * INSERTION_BUDGET;
+        boolean moved = false;
+
+        for (int i = 1; i < size; i++) {
+            T item = list.get(i);
+            int j = i - 1;
+            if (cmp.compare(list.get(j), item) <= 0) continue;
+
+            moved = true;
+            do {
+                list.set(j + 1, list.get(j));
+                j--;
+                if (--budget < 0) {
+                    // 放回当前元素恢复为合法排列，再整体排序
+                    list.set(j + 1, item);
+                    list.sort(cmp);
+                    return true;
+                }
+            } while (j >= 0 && cmp.compare(list.get(j), item) > 0);
+            list.set(j + 1, item);
+        }
+        return moved;
+    }
+
+    /**
+     * 快速选择：将 [lo, hi] 区间中第 k 小的元素放到下标 k，
+     * 使 [lo, k) 的元素都不大于它、(k, hi] 的元素都不小于它。
+     */
+    private static <T> void select(List<T> list, int lo, int hi, int k, Comparator<? super T> cmp) {
+        while (hi > lo) {
+            // 三数取中作为枢轴，避免基本有序的输入退化为 O(n^2)
+            int mid = (lo + hi) >>> 1;
+            if (cmp.compare(list.get(mid), list.get(lo)) < 0) swap(list, lo, mid);
+            if (cmp.compare(list.get(hi), list.get(lo)) < 0) swap(list, lo, hi);
+            if (cmp.compare(list.get(hi), list.get(mid)) < 0) swap(list, mid, hi);
+            T pivot = list.get(mid);
+
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (cmp.compare(list.get(i), pivot) < 0) i++;
+                while (cmp.compare(list.get(j), pivot) > 0) j--;
+                if (i <= j) swap(list, i++, j--);
+            }
+
+            // [lo, j] <= pivot <= [i, hi]，(j, i) 之间的元素已在最终位置
+            if (k <= j) hi = j;
+            else if (k >= i) lo = i;
+            else return;
+        }
+    }
+
+    /**
+     * 基本类型版本的快速选择：将 keys 的前 n 项中最小的 k 项移到 [0, k) (前缀内部不排序).
+     * 用于从大量候选中挑出最近的一小部分，期望 O(n)，不装箱。
+     */
+    static void selectSmallest(long[] keys, int n, int k) {
+        if (k <= 0 || k >= n) return;
+        int lo = 0, hi = n - 1;
+        while (hi > lo) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] < keys[lo]) swap(keys, lo, mid);
+            if (keys[hi] < keys[lo]) swap(keys, lo, hi);
+            if (keys[hi] < keys[mid]) swap(keys, mid, hi);
+            long pivot = keys[mid];
+
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j) swap(keys, i++, j--);
+            }
+
+            // 第 k 小的元素 (下标 k - 1) 落在哪个区间就继续处理哪个区间
+            if (k - 1 <= j) hi = j;
+            else if (k - 1 >= i) lo = i;
+            else return;
+        }
+    }
+
+    private static void swap(long[] keys, int a, int b) {
+        long tmp = keys[a];
+        keys[a] = keys[b];
+        keys[b] = tmp;
+    }
+
+    private static <T> void swap(List<T> list, int a, int b) {
+        list.set(a, list.set(b, list.get(a)));
+    }
+}
@@ -0,0 +1,188 @@
+package com.mohuia.better_looting.client.core;
+
+import java.util.Arrays;
+
+/**
+ * 已请求拾取、等待服务端确认的实体集合 (乐观拾取).
+ * <p>
+ * 客户端发送拾取请求后立即登记其中的实体：扫描器将它们从列表中移除，后续请求也不再包含它们，
+ * 玩家看到的拾取延迟为零，自动拾取与连续点击不会重复请求同一批实体。
+ * </p>
+ * <p>
+ * 服务端处理完请求后回复确认，列出仍然留在世界中的实体 (背包已满、超出配额或校验失败)，这些实体立即回滚；
+ * 其余实体已被拾取，继续保持隐藏，直到服务端的实体移除同步到达 (确认可能先于移除到达)，最长 {@link #SETTLE_TICKS}。
+ * 服务端判定不可拾取的实体 (客户端的可拾取状态只是推断) 继续隐藏 {@link #REJECT_TICKS}，不会回滚后又被自动拾取反复请求。
+ * 超过 {@link #ACK_TIMEOUT_TICKS} 仍未收到确认的请求整体回滚。仅由主线程访问。
+ * </p>
+ * <p>
+ * 登记记录以并列的基本类型数组存放 (槽位布局与 {@link IntMap} 相同：线性探测、后移删除)，
+ * 登记一次请求不为每个实体分配对象，查找也不装箱。
+ * </p>
+ */
+public final class PendingPickups {
+
+    /** 未收到确认时的回滚时限 (tick) */
+    private static final int ACK_TIMEOUT_TICKS = 40;
+    /** 收到确认后，已拾取实体继续隐藏的时限 (tick) */
+    private static final int SETTLE_TICKS = 20;
+    /** 服务端判定不可拾取的实体继续隐藏的时限 (tick) */
+    private static final int REJECT_TICKS = 1200;
+
+    private static final int MIN_CAPACITY = 16;
+    /** 空槽标记：登记记录的过期时刻总是大于 0 */
+    private static final long FREE = 0L;
+
+    /** 槽位 -> 实体 ID */
+    private int[] entityIds;
+    /** 槽位 -> 请求序号 */
+    private int[] requestIds;
+    /** 槽位 -> 过期时刻 (tick)；{@link #FREE} 表示空槽 */
+    private long[] expireTicks;
+    private int mask;
+    private int size;
+
+    /** 过期实体的临时缓冲 (复用，避免在遍历槽位时删除导致元素前移) */
+    private int[] expired = new int[16];
+    private long tick = 0;
+
+    public PendingPickups() {
+        allocate(MIN_CAPACITY);
+    }
+
+    public boolean contains(int entityId) {
+        return slotOf(entityId) >= 0;
+    }
+
+    /** 登记一次请求中的实体 */
+    public void add(int requestId, int[] ids, int count) {
+        long expireTick = tick + ACK_TIMEOUT_TICKS;
+        for (int i = 0; i < count; i++) {
+            put(ids[i], requestId, expireTick);
+        }
+    }
+
+    /**
+     * 处理服务端确认.
+     * @param remaining 请求中仍然留在世界中的实体
+     * @param rejected 服务端判定不可拾取的实体
+     * @return 是否有实体被回滚 (需要重新扫描)
+     */
+    public boolean onAck(int requestId, int[] remaining, int[] rejected) {
+        boolean rolledBack = false;
+        for (int entityId : remaining) {
+            int slot = slotOf(entityId);
+            if (slot >= 0 && requestIds[slot] == requestId) {
+                removeSlot(slot);
+                rolledBack = true;
+            }
+        }
+        long settleTick = tick + SETTLE_TICKS;
+        for (int slot = 0; slot < expireTicks.length; slot++) {
+            if (expireTicks[slot] != FREE && requestIds[slot] == requestId) expireTicks[slot] = settleTick;
+        }
+        long rejectTick = tick + REJECT_TICKS;
+        for (int entityId : rejected) {
+            int slot = slotOf(entityId);
+            if (slot >= 0 && requestIds[slot] == requestId) expireTicks[slot] = rejectTick;
+        }
+        return rolledBack;
+    }
+
+    /**
+     * 推进一个 tick 并移除过期的实体.
+     * @return 是否有实体被移除 (需要重新扫描)
+     */
+    public boolean tick() {
+        tick++;
+        if (size == 0) return false;
+
+        int count = 0;
+        for (int slot = 0; slot < expireTicks.length; slot++) {
+            long expireTick = expireTicks[slot];
+            if (expireTick == FREE || expireTick > tick) continue;
+            if (count == expired.length) expired = Arrays.copyOf(expired, count * 2);
+            expired[count++] = entityIds[slot];
+        }
+        for (int i = 0; i < count; i++) {
+            int slot = slotOf(expired[i]);
+            if (slot >= 0) removeSlot(slot);
+        }
+        return count > 0;
+    }
+
+    /** 清空所有登记 (如切换世界) */
+    public void clear() {
+        if (size == 0) return;
+        Arrays.fill(expireTicks, FREE);
+        size = 0;
+    }
+
+    // ===== 哈希表 =====
+
+    /** @return 实体所在的槽位；未登记时返回 -1 */
+    private int slotOf(int entityId) {
+        for (int slot = IntMap.mix(entityId) & mask; expireTicks[slot] != FREE; slot = (slot + 1) & mask) {
+            if (entityIds[slot] == entityId) return slot;
+        }
+        return -1;
+    }
+
+    /** 登记或覆盖实体的记录 (同一实体被新的请求再次登记时以新请求为准) */
+    private void put(int entityId, int requestId, long expireTick) {
+        int slot = IntMap.mix(entityId) & mask;
+        for (; expireTicks[slot] != FREE; slot = (slot + 1) & mask) {
+            if (entityIds[slot] == entityId) {
+                requestIds[slot] = requestId;
+                expireTicks[slot] = expireTick;
+                return;
+            }
+        }
+        entityIds[slot] = entityId;
+        requestIds[slot] = requestId;
+        expireTicks[slot] = expireTick;
+        if (++size * 2 > entityIds.length) rehash(entityIds.length << 1);
+    }
+
+    /** 删除槽位后，将其后同一探测链上的元素前移填补空洞 (与 {@link IntMap} 相同) */
+    private void removeSlot(int hole) {
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (expireTicks[slot] == FREE) break;
+            int home = IntMap.mix(entityIds[slot]) & mask;
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                entityIds[hole] = entityIds[slot];
+                requestIds[hole] = requestIds[slot];
+                expireTicks[hole] = expireTicks[slot];
+                hole = slot;
+            }
+        }
+        expireTicks[hole] = FREE;
+        size--;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldEntityIds = entityIds;
+        int[] oldRequestIds = requestIds;
+        long[] oldExpireTicks = expireTicks;
+        int oldSize = size;
+        allocate(newCapacity);
+        size = oldSize;
+        for (int i = 0; i < oldEntityIds.length; i++) {
+            if (oldExpireTicks[i] == FREE) continue;
+            int slot = IntMap.mix(oldEntityIds[i]) & mask;
+            while (expireTicks[slot] != FREE) slot = (slot + 1) & mask;
+            entityIds[slot] = oldEntityIds[i];
+            requestIds[slot] = oldRequestIds[i];
+            expireTicks[slot] = oldExpireTicks[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        entityIds = new int[capacity];
+        requestIds = new int[capacity];
+        expireTicks = new long[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+}
@@ -0,0 +1,132 @@
+package com.mohuia.better_looting.client.core;
+
+import com.mohuia.better_looting.network.C2S.PacketBatchPickup;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * 拾取请求构建器.
+ * <p>
+ * 将条目中的源实体 ID 直接写入复用的基本类型缓冲区，再分段交给 {@link PacketBatchPickup}。
+ * 扫描器已将每个条目的源实体按由近到远排列，构建时不再排序，各段内保持加入顺序：
+ * 同一条目的实体由近到远，合并到同一段的多个条目按加入顺序 (即列表顺序) 依次排列。
+ * 整个过程不装箱、不创建中间集合，自动拾取每 10 tick 对范围内所有实体构建一次请求也不会产生额外垃圾。
+ * </p>
+ * <p>
+ * 每段带有类型标签与拾取配额：不限数量的实体按类型合并为一段；带配额的条目 (单次拾取、多选拾取) 各自独占一段，
+ * 服务端按段分别计算配额，一个数据包即可让多个条目各拾取一组。
+ * </p>
+ * <p>
+ * 数据包在发送时立即编码，{@link #build} 返回的数据包引用本构建器的缓冲区，
+ * 发送后即可调用 {@link #reset()} 复用。仅由主线程使用。
+ * </p>
+ */
+public final class PickupRequestBuilder {
+
+    // --- 分段 (按首次出现顺序)，段数量很少，线性查找即可 ---
+    private ResourceLocation[] types = new ResourceLocation[4];
+    private int[] quotas = new int[4];
+    private int segmentCount = 0;
+
+    // --- 待发送的实体 (按加入顺序) ---
+    private int[] ids = new int[64];
+    private int[] segmentOf = new int[64];
+    private int count = 0;
+
+    // --- 输出 (按段排列，段内保持加入顺序) ---
+    private int[] orderedIds = new int[64];
+    private int[] segmentEnds = new int[4];
+
+    public void reset() {
+        Arrays.fill(types, 0, segmentCount, null);
+        segmentCount = 0;
+        count = 0;
+    }
+
+    public boolean isEmpty() { return count == 0; }
+
+    /** 已加入的实体数量 */
+    public int size() { return count; }
+
+    /**
+     * 最近一次 {@link #build} 输出的实体 ID (按段排列，段内保持加入顺序)，有效长度为 {@link #size()}.
+     * 返回内部缓冲区本身，调用方不得修改。
+     */
+    public int[] getOrderedIds() { return orderedIds; }
+
+    /**
+     * 加入条目中所有通过检查的源实体，不限数量 (与同类型的其他条目合并为一段).
+     * @param live 实体是否仍可拾取 (快照可能比世界状态落后一个 tick)
+     */
+    public void addEntry(VisualItemEntry entry, IntPredicate live) {
+        addEntry(entry, live, PacketBatchPickup.UNLIMITED);
+    }
+
+    /**
+     * 加入条目中所有通过检查的源实体.
+     * @param quota 该条目的拾取配额；{@link PacketBatchPickup#UNLIMITED} 以外的值使条目独占一段
+     */
+    public void addEntry(VisualItemEntry entry, IntPredicate live, int quota) {
+        int segment = -1;
+        for (int entityId : entry.getEntityIds()) {
+            if (!live.test(entityId)) continue;
+            if (segment < 0) segment = segment(entry.getLootType(), quota);
+            append(entityId, segment);
+        }
+    }
+
+    /** 加入单个实体 */
+    public void addEntity(ResourceLocation lootType, int entityId, int quota) {
+        append(entityId, segment(lootType, quota));
+    }
+
+    /**
+     * 按段归并并生成数据包 (计数排序，稳定，O(实体数 + 段数)).
+     * 返回的数据包引用内部缓冲区，须在下一次 {@link #reset()} 之前发送。
+     */
+    public PacketBatchPickup build(int requestId, boolean isAuto) {
+        if (orderedIds.length < count) orderedIds = new int[ids.length];
+        if (segmentEnds.length < segmentCount) segmentEnds = new int[types.length];
+
+        // segmentEnds 先用作各段的写入位置：统计段大小并求前缀和得到段起点，写入完成后恰好成为段结束位置
+        Arrays.fill(segmentEnds, 0, segmentCount, 0);
+        for (int i = 0; i < count; i++) segmentEnds[segmentOf[i]]++;
+        int start = 0;
+        for (int segment = 0; segment < segmentCount; segment++) {
+            int size = segmentEnds[segment];
+            segmentEnds[segment] = start;
+            start += size;
+        }
+        for (int i = 0; i < count; i++) orderedIds[segmentEnds[segmentOf[i]]++] = ids[i];
+        return new PacketBatchPickup(requestId, types, quotas, segmentEnds, segmentCount, orderedIds, isAuto);
+    }
+
+    /** 不限数量的实体按类型共用一段；带配额的实体每次调用新开一段 */
+    private int segment(ResourceLocation lootType, int quota) {
+        if (quota == PacketBatchPickup.UNLIMITED) {
+            for (int i = 0; i < segmentCount; i++) {
+                if (quotas[i] == PacketBatchPickup.UNLIMITED && types[i].equals(lootType)) return i;
+            }
+        }
+        if (segmentCount == types.length) {
+            types = Arrays.copyOf(types, segmentCount * 2);
+            quotas = Arrays.copyOf(quotas, segmentCount * 2);
+        }
+        types[segmentCount] = lootType;
+        quotas[segmentCount] = quota;
+        return segmentCount++;
+    }
+
+    private void append(int entityId, int segment) {
+        if (count == ids.length) {
+            int capacity = count * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            segmentOf = Arrays.copyOf(segmentOf, capacity);
+        }
+        ids[count] = entityId;
+        segmentOf[count] = segment;
+        count++;
+    }
+}
@@ -0,0 +1,280 @@
+package com.mohuia.better_looting.client.core;
+
+import com.mohuia.better_looting.loot.LootProvider;
+import com.mohuia.better_looting.loot.LootProviders;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.phys.AABB;
+
+import java.util.List;
+
+/**
+ * 准星射线选取的粗筛结构 (均匀网格 + 3D DDA).
+ * <p>
+ * 在快照变化时由主线程根据列表中实体的包围盒构建一次：网格覆盖所有包围盒的范围，每个轴最多 {@link #MAX_CELLS_PER_AXIS} 格，
+ * 格子中的实体以 CSR (起始下标 + 扁平数组) 形式存储，查询时不分配内存。
+ * 射线按 Amanatides-Woo 算法逐格前进，只测试途经格子中的包围盒，命中点落在当前格子内即可提前结束。
+ * 数百个实体的掉落物堆中，每帧只需测试射线附近的少量包围盒。
+ * </p>
+ * <p>
+ * 包围盒取构建时的实体位置；落地后的掉落物基本静止，移动或消失的实体会在下一次快照变化时更新。
+ * </p>
+ */
+public final class RayBroadPhase {
+
+    public static final RayBroadPhase EMPTY = new RayBroadPhase(new int[0], new float[0], 0, 0, 0, 1, 1, 1, 1, new int[2], new int[0]);
+
+    private static final int MAX_CELLS_PER_AXIS = 64;
+    /** 格子边长下限，与单个掉落物包围盒相当 */
+    private static final double MIN_CELL_SIZE = 0.25;
+    /** 包围盒外扩量，掉落物本身很小 (0.25 格)，适当放大更容易瞄准 */
+    private static final double TARGET_INFLATE = 0.1;
+
+    /** 实体 ID 及其包围盒 (每个实体 6 个分量：minX, minY, minZ, maxX, maxY, maxZ) */
+    private final int[] ids;
+    private final float[] boxes;
+
+    private final double originX, originY, originZ;
+    private final double cellSize;
+    private final int nx, ny, nz;
+    /** 格子 c 中的实体为 cellItems[cellStart[c], cellStart[c + 1]) */
+    private final int[] cellStart;
+    private final int[] cellItems;
+
+    private RayBroadPhase(int[] ids, float[] boxes, double originX, double originY, double originZ, double cellSize,
+                          int nx, int ny, int nz, int[] cellStart, int[] cellItems) {
+        this.ids = ids;
+        this.boxes = boxes;
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.cellSize = cellSize;
+        this.nx = nx;
+        this.ny = ny;
+        this.nz = nz;
+        this.cellStart = cellStart;
+        this.cellItems = cellItems;
+    }
+
+    // =========================================
+    //               构建
+    // =========================================
+
+    /** 读取列表中仍可拾取的实体的包围盒并构建网格 */
+    public static RayBroadPhase build(List<VisualItemEntry> entries, ClientLevel level) {
+        int total = 0;
+        for (VisualItemEntry entry : entries) total += entry.getSourceCount();
+        if (total == 0) return EMPTY;
+
+        int[] ids = new int[total];
+        float[] boxes = new float[total * 6];
+        int count = 0;
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+
+        for (VisualItemEntry entry : entries) {
+            for (int id : entry.getEntityIds()) {
+                Entity entity = level.getEntity(id);
+                if (entity == null) continue;
+                LootProvider<Entity> provider = LootProviders.find(entity);
+                if (provider == null || !provider.isLootable(entity)) continue;
+
+                AABB box = entity.getBoundingBox().inflate(TARGET_INFLATE);
+                int b = count * 6;
+                boxes[b] = (float) box.minX;
+                boxes[b + 1] = (float) box.minY;
+                boxes[b + 2] = (float) box.minZ;
+                boxes[b + 3] = (float) box.maxX;
+                boxes[b + 4] = (float) box.maxY;
+                boxes[b + 5] = (float) box.maxZ;
+                ids[count++] = id;
+
+                minX = Math.min(minX, box.minX);
+                minY = Math.min(minY, box.minY);
+                minZ = Math.min(minZ, box.minZ);
+                maxX = Math.max(maxX, box.maxX);
+                maxY = Math.max(maxY, box.maxY);
+                maxZ = Math.max(maxZ, box.maxZ);
+            }
+        }
+        if (count == 0) return EMPTY;
+
+        // 格子大小按实体密度自适应 (平均每格约一个实体)，同时限制每个轴的格子数
+        double volume = (maxX - minX) * (maxY - minY) * (maxZ - minZ);
+        double extent = Math.max(maxX - minX, Math.max(maxY - minY, maxZ - minZ));
+        double cellSize = Math.max(Math.max(MIN_CELL_SIZE, Math.cbrt(volume / count)), extent / MAX_CELLS_PER_AXIS * (1 + 1e-6));
+        int nx = axisCells(maxX - minX, cellSize);
+        int ny = axisCells(maxY - minY, cellSize);
+        int nz = axisCells(maxZ - minZ, cellSize);
+
+        // 第一遍统计每个格子的实体数，前缀和得到起始下标，第二遍填充
+        int[] cellStart = new int[nx * ny * nz + 1];
+        int[] range = new int[6];
+        int refs = 0;
+        for (int i = 0; i < count; i++) {
+            cellRange(boxes, i, minX, minY, minZ, cellSize, nx, ny, nz, range);
+            for (int x = range[0]; x <= range[3]; x++)
+                for (int y = range[1]; y <= range[4]; y++)
+                    for (int z = range[2]; z <= range[5]; z++) {
+                        cellStart[(x * ny + y) * nz + z + 1]++;
+                        refs++;
+                    }
+        }
+        for (int c = 1; c < cellStart.length; c++) cellStart[c] += cellStart[c - 1];
+
+        int[] cellItems = new int[refs];
+        int[] fill = new int[cellStart.length - 1];
+        System.arraycopy(cellStart, 0, fill, 0, fill.length);
+        for (int i = 0; i < count; i++) {
+            cellRange(boxes, i, minX, minY, minZ, cellSize, nx, ny, nz, range);
+            for (int x = range[0]; x <= range[3]; x++)
+                for (int y = range[1]; y <= range[4]; y++)
+                    for (int z = range[2]; z <= range[5]; z++) {
+                        cellItems[fill[(x * ny + y) * nz + z]++] = i;
+                    }
+        }
+
+        return new RayBroadPhase(ids, boxes, minX, minY, minZ, cellSize, nx, ny, nz, cellStart, cellItems);
+    }
+
+    private static int axisCells(double length, double cellSize) {
+        return Mth.clamp((int) Math.ceil(length / cellSize), 1, MAX_CELLS_PER_AXIS);
+    }
+
+    /** 计算包围盒覆盖的格子范围 [x0, y0, z0, x1, y1, z1] */
+    private static void cellRange(float[] boxes, int i, double minX, double minY, double minZ, double cellSize,
+                                  int nx, int ny, int nz, int[] out) {
+        int b = i * 6;
+        out[0] = Mth.clamp(Mth.floor((boxes[b] - minX) / cellSize), 0, nx - 1);
+        out[1] = Mth.clamp(Mth.floor((boxes[b + 1] - minY) / cellSize), 0, ny - 1);
+        out[2] = Mth.clamp(Mth.floor((boxes[b + 2] - minZ) / cellSize), 0, nz - 1);
+        out[3] = Mth.clamp(Mth.floor((boxes[b + 3] - minX) / cellSize), 0, nx - 1);
+        out[4] = Mth.clamp(Mth.floor((boxes[b + 4] - minY) / cellSize), 0, ny - 1);
+        out[5] = Mth.clamp(Mth.floor((boxes[b + 5] - minZ) / cellSize), 0, nz - 1);
+    }
+
+    // =========================================
+    //               查询
+    // =========================================
+
+    /**
+     * 查找射线最先命中的掉落物.
+     *
+     * 射线起点为 (ox, oy, oz)，通常为眼睛位置；方向 (dx, dy, dz) 须为单位向量。
+     *
+     * @param maxDistance 最大距离 (被方块遮挡时为到方块的距离)
+     * @return 命中实体的 ID；未命中时返回 {@link VisualItemEntry#NO_ID}
+     */
+    public int raycast(double ox, double oy, double oz, double dx, double dy, double dz, double maxDistance) {
+        if (ids.length == 0) return VisualItemEntry.NO_ID;
+
+        // 1. 将射线裁剪到网格范围内
+        //    方向分量为 0 的轴 (倒数为无穷大) 不参与裁剪，只检查起点是否在该轴范围内，避免 0 × ∞ = NaN
+        double invX = 1.0 / dx, invY = 1.0 / dy, invZ = 1.0 / dz;
+        double sizeX = nx * cellSize, sizeY = ny * cellSize, sizeZ = nz * cellSize;
+        double tEnter = 0.0, tExit = maxDistance;
+        if (dx == 0) {
+            if (ox < originX || ox > originX + sizeX) return VisualItemEntry.NO_ID;
+        } else {
+            double t1 = (originX - ox) * invX, t2 = (originX + sizeX - ox) * invX;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        if (dy == 0) {
+            if (oy < originY || oy > originY + sizeY) return VisualItemEntry.NO_ID;
+        } else {
+            double t1 = (originY - oy) * invY, t2 = (originY + sizeY - oy) * invY;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        if (dz == 0) {
+            if (oz < originZ || oz > originZ + sizeZ) return VisualItemEntry.NO_ID;
+        } else {
+            double t1 = (originZ - oz) * invZ, t2 = (originZ + sizeZ - oz) * invZ;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        if (!(tEnter <= tExit)) return VisualItemEntry.NO_ID;
+
+        // 2. 初始化 DDA：起始格子、下一个格子边界的 t 值及跨越一格的 t 增量
+        int x = Mth.clamp(Mth.floor((ox + dx * tEnter - originX) / cellSize), 0, nx - 1);
+        int y = Mth.clamp(Mth.floor((oy + dy * tEnter - originY) / cellSize), 0, ny - 1);
+        int z = Mth.clamp(Mth.floor((oz + dz * tEnter - originZ) / cellSize), 0, nz - 1);
+        int stepX = dx > 0 ? 1 : -1, stepY = dy > 0 ? 1 : -1, stepZ = dz > 0 ? 1 : -1;
+        // 方向分量为 0 的轴永远不会跨越格子边界：下一边界与增量均取正无穷
+        double deltaX = dx == 0 ? Double.POSITIVE_INFINITY : Math.abs(cellSize * invX);
+        double deltaY = dy == 0 ? Double.POSITIVE_INFINITY : Math.abs(cellSize * invY);
+        double deltaZ = dz == 0 ? Double.POSITIVE_INFINITY : Math.abs(cellSize * invZ);
+        double nextX = dx == 0 ? Double.POSITIVE_INFINITY : (originX + (x + (dx > 0 ? 1 : 0)) * cellSize - ox) * invX;
+        double nextY = dy == 0 ? Double.POSITIVE_INFINITY : (originY + (y + (dy > 0 ? 1 : 0)) * cellSize - oy) * invY;
+        double nextZ = dz == 0 ? Double.POSITIVE_INFINITY : (originZ + (z + (dz > 0 ? 1 : 0)) * cellSize - oz) * invZ;
+
+        // 3. 逐格测试，命中点在当前格子的出口之前即为最终结果
+        double best = maxDistance;
+        int bestId = VisualItemEntry.NO_ID;
+        while (true) {
+            int cell = (x * ny + y) * nz + z;
+            for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                int i = cellItems[k];
+                double t = intersect(i, ox, oy, oz, dx, dy, dz, invX, invY, invZ);
+                if (t < best) {
+                    best = t;
+                    bestId = ids[i];
+                }
+            }
+
+            double cellExit = Math.min(nextX, Math.min(nextY, nextZ));
+            if (bestId != VisualItemEntry.NO_ID && best <= cellExit) break;
+            if (cellExit > tExit) break;
+
+            if (nextX <= nextY && nextX <= nextZ) {
+                x += stepX;
+                if (x < 0 || x >= nx) break;
+                nextX += deltaX;
+            } else if (nextY <= nextZ) {
+                y += stepY;
+                if (y < 0 || y >= ny) break;
+                nextY += deltaY;
+            } else {
+                z += stepZ;
+                if (z < 0 || z >= nz) break;
+                nextZ += deltaZ;
+            }
+        }
+        return bestId;
+    }
+
+    /**
+     * 射线与第 i 个包围盒的 slab 相交测试，返回进入距离 (起点在盒内时为 0)；未相交返回正无穷.
+     * 方向分量为 0 的轴只检查起点是否位于该 slab 内 (起点恰好落在盒面上时 0 × ∞ 会得到 NaN)。
+     */
+    private double intersect(int i, double ox, double oy, double oz, double dx, double dy, double dz,
+                             double invX, double invY, double invZ) {
+        int b = i * 6;
+        double near = Double.NEGATIVE_INFINITY, far = Double.POSITIVE_INFINITY;
+        if (dx == 0) {
+            if (ox < boxes[b] || ox > boxes[b + 3]) return Double.POSITIVE_INFINITY;
+        } else {
+            double t1 = (boxes[b] - ox) * invX, t2 = (boxes[b + 3] - ox) * invX;
+            near = Math.min(t1, t2);
+            far = Math.max(t1, t2);
+        }
+        if (dy == 0) {
+            if (oy < boxes[b + 1] || oy > boxes[b + 4]) return Double.POSITIVE_INFINITY;
+        } else {
+            double t1 = (boxes[b + 1] - oy) * invY, t2 = (boxes[b + 4] - oy) * invY;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        if (dz == 0) {
+            if (oz < boxes[b + 2] || oz > boxes[b + 5]) return Double.POSITIVE_INFINITY;
+        } else {
+            double t1 = (boxes[b + 2] - oz) * invZ, t2 = (boxes[b + 5] - oz) * invZ;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        if (!(near <= far) || far < 0) return Double.POSITIVE_INFINITY;
+        return Math.max(near, 0.0);
+    }
+}
@@ -0,0 +1,92 @@
+package com.mohuia.better_looting.client.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单次扫描的增量结果.
+ * <p>
+ * 随 {@link ScanSnapshot} 一同发布，描述相对上一份快照的变化：
+ * 新增的条目、被移除的条目、以及数量或来源发生变化的条目。
+ * 条目不可变，发生变化的条目在新快照中是一个新实例，但 {@link VisualItemEntry#getEntryId()} 保持不变；
+ * 调用方应按条目 ID 维护自己的派生状态 (如动画缓存)。
+ * </p>
+ * <p>
+ * 主线程来不及取走的快照不会被丢弃，其增量与后续增量合并 ({@link #merge})，
+ * 因此每份被取走的快照的增量都相对主线程上一次取走的快照，中间的移除不会丢失。
+ * </p>
+ */
+public class ScanDelta {
+
+    /** 无任何变化时复用的共享实例 */
+    public static final ScanDelta EMPTY = new ScanDelta(List.of(), List.of(), List.of());
+
+    private final List<VisualItemEntry> added;
+    private final List<VisualItemEntry> removed;
+    private final List<VisualItemEntry> changed;
+
+    ScanDelta(List<VisualItemEntry> added, List<VisualItemEntry> removed, List<VisualItemEntry> changed) {
+        this.added = added;
+        this.removed = removed;
+        this.changed = changed;
+    }
+
+    /** 新增的条目 (新快照中的实例) */
+    public List<VisualItemEntry> getAdded() { return added; }
+    /** 被移除的条目 (上一份快照中的实例) */
+    public List<VisualItemEntry> getRemoved() { return removed; }
+    /** 发生变化的条目 (新快照中的实例) */
+    public List<VisualItemEntry> getChanged() { return changed; }
+
+    /** 成员是否发生变化 */
+    public boolean isMembershipChanged() { return !added.isEmpty() || !removed.isEmpty(); }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     * 合并两次连续的增量 (newer 紧接在 older 之后)，结果等价于一次完成两步变化.
+     * 条目 ID 不会复用：先新增后移除的条目不出现在结果中，先新增后变化的条目以新实例报告为新增。
+     */
+    static ScanDelta merge(ScanDelta older, ScanDelta newer) {
+        if (older.isEmpty()) return newer;
+        if (newer.isEmpty()) return older;
+
+        IntMap<VisualItemEntry> olderAdded = index(older.added);
+        IntMap<VisualItemEntry> newerRemoved = index(newer.removed);
+        IntMap<VisualItemEntry> newerChanged = index(newer.changed);
+
+        List<VisualItemEntry> mergedAdded = new ArrayList<>(older.added.size() + newer.added.size());
+        for (VisualItemEntry entry : older.added) {
+            int id = entry.getEntryId();
+            if (newerRemoved.get(id) != null) continue;
+            VisualItemEntry latest = newerChanged.get(id);
+            mergedAdded.add(latest != null ? latest : entry);
+        }
+        mergedAdded.addAll(newer.added);
+
+        List<VisualItemEntry> mergedRemoved = new ArrayList<>(older.removed.size() + newer.removed.size());
+        mergedRemoved.addAll(older.removed);
+        for (VisualItemEntry entry : newer.removed) {
+            if (olderAdded.get(entry.getEntryId()) == null) mergedRemoved.add(entry);
+        }
+
+        List<VisualItemEntry> mergedChanged = new ArrayList<>(older.changed.size() + newer.changed.size());
+        for (VisualItemEntry entry : older.changed) {
+            int id = entry.getEntryId();
+            if (newerRemoved.get(id) == null && newerChanged.get(id) == null) mergedChanged.add(entry);
+        }
+        for (VisualItemEntry entry : newer.changed) {
+            if (olderAdded.get(entry.getEntryId()) == null) mergedChanged.add(entry);
+        }
+
+        return new ScanDelta(mergedAdded, mergedRemoved, mergedChanged);
+    }
+
+    private static IntMap<VisualItemEntry> index(List<VisualItemEntry> entries) {
+        IntMap<VisualItemEntry> map = new IntMap<>();
+        for (VisualItemEntry entry : entries) map.put(entry.getEntryId(), entry);
+        return map;
+    }
+}
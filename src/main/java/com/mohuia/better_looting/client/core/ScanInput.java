@@ -0,0 +1,109 @@
+package com.mohuia.better_looting.client.core;
+
+import com.mohuia.better_looting.client.Core;
+import com.mohuia.better_looting.config.Config;
+import com.mohuia.better_looting.loot.LootProvider;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.Map;
+
+/**
+ * 扫描输入快照.
+ * <p>
+ * 由主线程在 tick 中采集 (实体 ID、提供者、坐标、显示物品栈引用及数量)，随后交给后台线程进行合并、过滤与排序。
+ * 提交给后台线程后不再修改；线程池的任务提交保证了写入对后台线程可见，无需额外同步。
+ * </p>
+ */
+final class ScanInput {
+
+    /** 无玩家或无世界时提交的空输入，后台处理后会清空所有条目 */
+    static final ScanInput EMPTY = new ScanInput(Core.FilterMode.ALL, Config.SortMode.RARITY, Map.of(),
+            0, 0, 0, 0, 0, 0);
+
+    static {
+        // 所有成员都早于清理界限
+        EMPTY.finish(false, Long.MAX_VALUE, new int[0]);
+    }
+
+    // 采集时按照候选数量预分配，实际写入数量见 length()
+
+    final Core.FilterMode filterMode;
+    final Config.SortMode sortMode;
+    /** 估值表 (不可变)，引用变化即表示配置已重载 */
+    final Map<ResourceLocation, Integer> itemValues;
+    final double playerX, playerY, playerZ;
+    /** 需要精确排序的前缀长度 (由选中项与滚动位置决定) */
+    final int orderedLimit;
+    /** 采集时的世界时间 (tick)，用于计算成员的消失宽限期 */
+    final long gameTime;
+
+    final int[] ids;
+    final LootProvider<?>[] providers;
+    final ItemStack[] stacks;
+    final int[] counts;
+    /** 是否在进入范围内；为 false 时实体只在退出余量内，仅能维持已有成员，不会新加入列表 */
+    final boolean[] inside;
+    final double[] xs, ys, zs;
+
+    /** 本次是否只采集了部分候选实体 (超出扫描预算，本轮尚未完成) */
+    boolean partial;
+    /** 清理界限：最近一次被看到的时间早于该值的成员将被移除；Long.MIN_VALUE 表示本次不清理 */
+    long sweepBefore = Long.MIN_VALUE;
+    /** 需要立即移除的实体 ID：自上次采集以来离开世界的实体，以及已请求拾取、等待服务端确认的实体 */
+    int[] removedIds;
+
+    private int cursor = 0;
+
+    ScanInput(Core.FilterMode filterMode, Config.SortMode sortMode, Map<ResourceLocation, Integer> itemValues,
+              double playerX, double playerY, double playerZ, int orderedLimit, long gameTime, int capacity) {
+        this.filterMode = filterMode;
+        this.sortMode = sortMode;
+        this.itemValues = itemValues;
+        this.orderedLimit = orderedLimit;
+        this.gameTime = gameTime;
+        this.playerX = playerX;
+        this.playerY = playerY;
+        this.playerZ = playerZ;
+        this.ids = new int[capacity];
+        this.providers = new LootProvider<?>[capacity];
+        this.stacks = new ItemStack[capacity];
+        this.counts = new int[capacity];
+        this.inside = new boolean[capacity];
+        this.xs = new double[capacity];
+        this.ys = new double[capacity];
+        this.zs = new double[capacity];
+    }
+
+    /** 主线程写入一个实体；调用次数可少于容量，未写入的槽位通过 {@link #length()} 排除 */
+    void add(Entity entity, LootProvider<?> provider, ItemStack stack, int count, boolean inside) {
+        int i = cursor++;
+        ids[i] = entity.getId();
+        providers[i] = provider;
+        stacks[i] = stack;
+        counts[i] = count;
+        this.inside[i] = inside;
+        xs[i] = entity.getX();
+        ys[i] = entity.getY();
+        zs[i] = entity.getZ();
+    }
+
+    /** 采集结束时由主线程设置本次的完成状态 */
+    void finish(boolean partial, long sweepBefore, int[] removedIds) {
+        this.partial = partial;
+        this.sweepBefore = sweepBefore;
+        this.removedIds = removedIds;
+    }
+
+    /** 实际写入的实体数量 */
+    int length() { return cursor; }
+
+    /** 第 i 个实体到玩家的距离平方 */
+    double distanceSqr(int i) {
+        double dx = xs[i] - playerX;
+        double dy = ys[i] - playerY;
+        double dz = zs[i] - playerZ;
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
@@ -0,0 +1,89 @@
+package com.mohuia.better_looting.client.core;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.world.entity.player.Player;
+
+/**
+ * 自适应扫描调度器.
+ * <p>
+ * 根据 HUD 可见性、自动拾取状态以及玩家是否移动决定 {@link LootScanner} 的扫描频率，
+ * 避免 HUD 隐藏时仍以 20 Hz 满速扫描：
+ * </p>
+ * <ul>
+ *     <li>{@link Rate#FULL}：HUD 满足激活条件或自动拾取开启时，每 tick 扫描。</li>
+ *     <li>{@link Rate#REDUCED}：HUD 隐藏且玩家正在移动时降频。</li>
+ *     <li>{@link Rate#IDLE}：HUD 隐藏且玩家静止时进一步降频。</li>
+ *     <li>{@link Rate#SUSPENDED}：打开任意界面时暂停扫描。</li>
+ * </ul>
+ * 激活条件由不满足变为满足时立即扫描一次，确保 HUD 弹出时列表是最新的。
+ */
+public class ScanScheduler {
+
+    /** 扫描频率档位 */
+    public enum Rate {
+        FULL(1),
+        REDUCED(4),
+        IDLE(10),
+        SUSPENDED(0);
+
+        /** 扫描间隔 (tick)，0 表示不扫描 */
+        public final int interval;
+
+        Rate(int interval) {
+            this.interval = interval;
+        }
+    }
+
+    private Rate currentRate = Rate.FULL;
+    private int ticksSinceScan = 0;
+    private boolean wasActive = false;
+    /** 外部请求的立即扫描 (如切换过滤模式) */
+    private boolean forceNext = true;
+
+    /**
+     * 推进调度器并判断本 tick 是否需要扫描.
+     * 应在 Client Tick 中每 tick 调用一次。
+     *
+     * @param mc Minecraft 实例
+     * @param hudActive HUD 当前是否满足激活条件
+     * @param autoMode 自动拾取是否开启
+     * @return true 如果本 tick 应执行扫描
+     */
+    public boolean tick(Minecraft mc, boolean hudActive, boolean autoMode) {
+        boolean risingEdge = hudActive && !wasActive;
+        wasActive = hudActive;
+
+        currentRate = resolveRate(mc, hudActive, autoMode);
+        ticksSinceScan++;
+
+        if (currentRate == Rate.SUSPENDED) return false;
+
+        if (forceNext || risingEdge || ticksSinceScan >= currentRate.interval) {
+            forceNext = false;
+            ticksSinceScan = 0;
+            return true;
+        }
+        return false;
+    }
+
+    /** 请求在下一 tick 立即扫描 (不受当前频率限制，界面打开时除外) */
+    public void requestImmediate() {
+        this.forceNext = true;
+    }
+
+    public Rate getCurrentRate() { return currentRate; }
+
+    private Rate resolveRate(Minecraft mc, boolean hudActive, boolean autoMode) {
+        if (mc.screen != null) return Rate.SUSPENDED;
+        if (hudActive || autoMode) return Rate.FULL;
+        return isMoving(mc.player) ? Rate.REDUCED : Rate.IDLE;
+    }
+
+    private static boolean isMoving(Player player) {
+        if (player == null) return false;
+        double dx = player.getX() - player.xo;
+        double dy = player.getY() - player.yo;
+        double dz = player.getZ() - player.zo;
+        return (dx * dx + dy * dy + dz * dz) >= 0.0001;
+    }
+}
@@ -0,0 +1,102 @@
+package com.mohuia.better_looting.client.core;
+
+import java.util.List;
+
+/**
+ * 扫描结果快照.
+ * <p>
+ * 由 {@link LootScanner} 的后台线程在每次产生变化的扫描后构建，交给主线程通过 {@link LootScanner#poll()} 取走。
+ * 快照及其中的条目均不可变，渲染线程与主线程任意时刻读取到的都是一致的列表。
+ * </p>
+ * <p>
+ * 每份快照带有单调递增的代数 ({@link #getGeneration()}) 与相对主线程上一次取走的快照的变化掩码 ({@link #getChangeMask()})，
+ * 渲染端的派生缓存 (名称、Tooltip 等) 可以按代数判断是否需要更新，代数未变化时直接复用。
+ * </p>
+ */
+public final class ScanSnapshot {
+
+    // ===== 变化掩码 =====
+    /** 有条目新增或移除 */
+    public static final int CHANGE_MEMBERSHIP = 1;
+    /** 条目顺序变化 (成员变化时必然包含) */
+    public static final int CHANGE_ORDER = 1 << 1;
+    /** 有条目的数量或来源实体变化 */
+    public static final int CHANGE_COUNTS = 1 << 2;
+
+    /** 初始状态 / 无掉落物 */
+    public static final ScanSnapshot EMPTY = new ScanSnapshot(0, 0, false, List.of(), EntityIndex.EMPTY, EntityIndex.EMPTY, ScanDelta.EMPTY);
+
+    private final long generation;
+    private final int changeMask;
+    private final boolean partial;
+
+    private final List<VisualItemEntry> entries;
+    /** 分组 ID -> 在 entries 中的位置 */
+    private final EntityIndex positions;
+    /** 实体 ID -> 分组 ID */
+    private final EntityIndex entities;
+    private final ScanDelta delta;
+
+    ScanSnapshot(long generation, int changeMask, boolean partial, List<VisualItemEntry> entries,
+                 EntityIndex positions, EntityIndex entities, ScanDelta delta) {
+        this.generation = generation;
+        this.changeMask = changeMask;
+        this.partial = partial;
+        this.entries = entries;
+        this.positions = positions;
+        this.entities = entities;
+        this.delta = delta;
+    }
+
+    /**
+     * 构建静态的预览快照 (如配置界面中的示例列表).
+     * 预览条目没有分组 ID，不支持按 ID 查找。
+     */
+    public static ScanSnapshot preview(List<VisualItemEntry> entries) {
+        return new ScanSnapshot(0, CHANGE_MEMBERSHIP | CHANGE_ORDER | CHANGE_COUNTS, false, List.copyOf(entries),
+                EntityIndex.EMPTY, EntityIndex.EMPTY, ScanDelta.EMPTY);
+    }
+
+    /** 快照代数，每次扫描器发布新快照时递增；EMPTY 与预览快照为 0 */
+    public long getGeneration() { return generation; }
+
+    /** 相对主线程上一次取走的快照的变化掩码 ({@code CHANGE_*} 的组合) */
+    public int getChangeMask() { return changeMask; }
+
+    /**
+     * 是否为部分采集的结果.
+     * 范围内的实体超出扫描预算时分多个 tick 轮流采集，本轮完成之前列表可能缺少远处的实体、数量也可能滞后。
+     */
+    public boolean isPartial() { return partial; }
+
+    /** 是否包含指定的任一变化 */
+    public boolean hasChanged(int mask) { return (changeMask & mask) != 0; }
+
+    /** 排序后的只读条目列表 */
+    public List<VisualItemEntry> getEntries() { return entries; }
+
+    /**
+     * 按分组 ID 查找条目位置 (O(1)).
+     * @return 条目下标；不存在时返回 -1
+     */
+    public int indexOf(int entryId) {
+        return positions.get(entryId);
+    }
+
+    /**
+     * 按掉落物实体 ID 查找其所在条目的位置 (O(1)).
+     * @return 条目下标；实体不在列表中 (未扫描到或被过滤) 时返回 -1
+     */
+    public int indexOfEntity(int entityId) {
+        return indexOf(entities.entryIdOf(entityId));
+    }
+
+    /** 相对主线程上一次取走的快照的变化 */
+    public ScanDelta getDelta() { return delta; }
+
+    /** 合并尚未被取走的上一份快照的变化：内容取本快照，变化掩码与增量累加 */
+    ScanSnapshot mergeAfter(ScanSnapshot unconsumed) {
+        return new ScanSnapshot(generation, changeMask | unconsumed.changeMask, partial, entries, positions, entities,
+                ScanDelta.merge(unconsumed.delta, delta));
+    }
+}
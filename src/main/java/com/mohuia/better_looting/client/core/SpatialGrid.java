@@ -0,0 +1,182 @@
+package com.mohuia.better_looting.client.core;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.util.Mth;
+import net.minecraft.world.phys.AABB;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 均匀空间网格 (4x4x4 方块为一格).
+ * <p>
+ * 由 {@link EntityTracker} 增量维护：实体加入、离开或跨越格子边界时只修改对应的格子。
+ * 范围查询只访问与查询范围相交的格子，开销与范围内的实体数量成正比，而非整个世界的实体数量。
+ * 相比 16 格的区段，更细的格子让大半径 (收集者模式) 查询读取到的多余实体更少。
+ * </p>
+ * <p>
+ * 每个格子带有全局唯一的版本号；当查询覆盖的格子集合及其版本都未变化时，
+ * {@link #query(AABB)} 直接复用上一次的结果。
+ * </p>
+ */
+public class SpatialGrid {
+
+    /** 格子边长 = 1 << CELL_SHIFT (4 方块) */
+    private static final int CELL_SHIFT = 2;
+
+    private final Map<Long, Cell> cells = new HashMap<>();
+
+    /** 全局修改计数，格子内容每次变化都会分配一个新的版本号 (保证唯一，避免格子重建后版本号回绕) */
+    private int modCount = 0;
+
+    // --- 查询缓存 ---
+    private long[] lastKeys = new long[0];
+    private int[] lastVersions = new int[0];
+    private final List<Node> result = new ArrayList<>();
+    private boolean lastQueryReused = false;
+
+    /** 网格节点基类，记录所在格子及在格子成员列表中的下标 */
+    public abstract static class Node {
+        long cellKey;
+        int cellIndex;
+    }
+
+    // =========================================
+    //               增量维护
+    // =========================================
+
+    public void insert(Node node, double x, double y, double z) {
+        node.cellKey = cellKey(x, y, z);
+        link(node);
+    }
+
+    public void remove(Node node) {
+        unlink(node);
+    }
+
+    /**
+     * 更新节点位置，仅在跨越格子边界时才修改网格.
+     * @return true 如果节点移动到了新的格子
+     */
+    public boolean update(Node node, double x, double y, double z) {
+        long key = cellKey(x, y, z);
+        if (key == node.cellKey) return false;
+        unlink(node);
+        node.cellKey = key;
+        link(node);
+        return true;
+    }
+
+    public void clear() {
+        cells.clear();
+        result.clear();
+        lastKeys = new long[0];
+        lastVersions = new int[0];
+    }
+
+    // =========================================
+    //               范围查询
+    // =========================================
+
+    /**
+     * 获取与指定范围相交格子内的所有节点.
+     * <p>
+     * 返回值是候选超集 (按格子粒度)，调用方仍需自行进行精确判定。
+     * 返回的列表在下一次查询前有效，调用方不应修改。
+     * </p>
+     */
+    public List<Node> query(AABB area) {
+        return query(area.minX, area.minY, area.minZ, area.maxX, area.maxY, area.maxZ);
+    }
+
+    /** 同 {@link #query(AABB)}，以基本类型给出范围，调用方无需创建包围盒 */
+    public List<Node> query(double minPosX, double minPosY, double minPosZ,
+                            double maxPosX, double maxPosY, double maxPosZ) {
+        int minX = cellCoord(minPosX), maxX = cellCoord(maxPosX);
+        int minY = cellCoord(minPosY), maxY = cellCoord(maxPosY);
+        int minZ = cellCoord(minPosZ), maxZ = cellCoord(maxPosZ);
+
+        int count = (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        boolean unchanged = count == lastKeys.length;
+        if (!unchanged) {
+            lastKeys = new long[count];
+            lastVersions = new int[count];
+        }
+
+        int i = 0;
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    long key = BlockPos.asLong(x, y, z);
+                    Cell cell = cells.get(key);
+                    int version = cell == null ? -1 : cell.version;
+                    if (lastKeys[i] != key || lastVersions[i] != version) {
+                        unchanged = false;
+                        lastKeys[i] = key;
+                        lastVersions[i] = version;
+                    }
+                    i++;
+                }
+            }
+        }
+
+        lastQueryReused = unchanged;
+        if (unchanged) return result;
+
+        result.clear();
+        for (long key : lastKeys) {
+            Cell cell = cells.get(key);
+            if (cell != null) result.addAll(cell.members);
+        }
+        return result;
+    }
+
+    /** 上一次 {@link #query(AABB)} 是否直接复用了缓存结果 */
+    public boolean isLastQueryReused() { return lastQueryReused; }
+
+    // =========================================
+    //               内部实现
+    // =========================================
+
+    private void link(Node node) {
+        Cell cell = cells.computeIfAbsent(node.cellKey, k -> new Cell());
+        node.cellIndex = cell.members.size();
+        cell.members.add(node);
+        cell.version = ++modCount;
+    }
+
+    private void unlink(Node node) {
+        Cell cell = cells.get(node.cellKey);
+        if (cell == null) return;
+
+        // swap-remove: 用末尾元素填补空位，O(1)
+        List<Node> members = cell.members;
+        Node last = members.remove(members.size() - 1);
+        if (last != node) {
+            last.cellIndex = node.cellIndex;
+            members.set(node.cellIndex, last);
+        }
+
+        if (members.isEmpty()) {
+            cells.remove(node.cellKey);
+        } else {
+            cell.version = ++modCount;
+        }
+    }
+
+    private static int cellCoord(double pos) {
+        return Mth.floor(pos) >> CELL_SHIFT;
+    }
+
+    private static long cellKey(double x, double y, double z) {
+        return BlockPos.asLong(cellCoord(x), cellCoord(y), cellCoord(z));
+    }
+
+    /** 格子桶：成员列表 + 版本号 */
+    private static class Cell {
+        final List<Node> members = new ArrayList<>();
+        int version;
+    }
+}
@@ -1,28 +1,43 @@
 package com.mohuia.better_looting.client.core;
 
-import net.minecraft.world.entity.item.ItemEntity;
+import com.mohuia.better_looting.loot.LootProviders;
+import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.item.ItemStack;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * 视觉物品条目.
- * 代表 UI 列表中的一行。该类负责将多个同类 {@link ItemEntity} 聚合显示。
- * 包含代表性物品栈 (Representative Stack) 和源实体列表。
+ * 代表 UI 列表中的一行。该类负责将多个同类可拾取实体 (掉落物、经验球、箭等) 聚合显示，同一行的实体属于同一个提供者。
+ * 包含代表性物品栈 (Representative Stack) 和源实体 ID 列表。
+ * <p>
+ * 条目是不可变的快照视图，由 {@link LootScanner} 的后台线程构建并随 {@link ScanSnapshot} 发布。
+ * 分组内容变化时扫描器会构建新实例，同一分组的所有实例共享 {@link #getEntryId()} 与物品栈。
+ * 排序键由扫描器按分组维护 (见 {@link #computeRankKey} / {@link #computeNameKey})，不随条目发布。
+ * 条目只保存实体 ID，不持有实体引用，已移除的实体不会因仍在列表中而无法回收；需要实体时通过世界按 ID 查找。
+ * </p>
  */
 public class VisualItemEntry {
-    private final List<ItemEntity> sourceEntities = new ArrayList<>();
+    /** 预览条目的 ID */
+    public static final int NO_ID = -1;
+
+    /** 分组 ID，在分组生命周期内稳定 */
+    private final int entryId;
+    /** 提供者 ID ({@link com.mohuia.better_looting.loot.LootProvider#getId()})，拾取数据包的类型标签 */
+    private final ResourceLocation lootType;
+    /** 源实体 ID，由近到远排列 */
+    private final int[] entityIds;
     private final ItemStack representativeStack;
-    private int totalCount = 0;
+    private final int totalCount;
 
     /**
-     * 游戏内实体构造函数.
-     * @param firstEntity 发现的第一个实体
+     * 扫描器构造函数.
+     * 调用方 ({@link LootScanner}) 负责保证所有源实体与代表性物品栈的 Item 和 NBT 一致，且 ID 数组不再被修改。
      */
-    public VisualItemEntry(ItemEntity firstEntity) {
-        this.sourceEntities.add(firstEntity);
-        this.representativeStack = firstEntity.getItem().copy();
-        this.totalCount = this.representativeStack.getCount();
+    VisualItemEntry(int entryId, ResourceLocation lootType, ItemStack representativeStack, int[] entityIds, int totalCount) {
+        this.entryId = entryId;
+        this.lootType = lootType;
+        this.representativeStack = representativeStack;
+        this.entityIds = entityIds;
+        this.totalCount = totalCount;
     }
 
     /**
@@ -30,44 +45,45 @@ public class VisualItemEntry {
      * @param stack 预览用的物品栈
      */
     public VisualItemEntry(ItemStack stack) {
+        this.entryId = NO_ID;
+        this.lootType = LootProviders.ITEM.getId();
         this.representativeStack = stack.copy();
+        this.entityIds = new int[0];
         this.totalCount = stack.getCount();
     }
 
     /**
-     * 尝试合并另一个实体到当前条目.
-     *
-     * @param entity 待合并的实体
-     * @return true 如果合并成功 (类型相同且允许堆叠); false 否则
+     * 将稀有度与附魔状态打包为一个 long (分组创建时计算一次；同一分组内 Item 与 NBT 一致，排序键不变).
+     * 高位：稀有度取反 (稀有度越高值越小)；最低位：无附魔为 1。
+     * 排序时只需一次 long 比较即可完成前两级判定。
      */
-    public boolean tryMerge(ItemEntity entity) {
-        ItemStack otherStack = entity.getItem();
-
-        // 1. 强制检查堆叠规则
-        // 工具、武器、盔甲等 (maxStackSize=1) 即使完全相同也不合并，确保可以在列表中分开选择。
-        if (!this.representativeStack.isStackable()) {
-            return false;
-        }
-
-        // 2. 检查 Item 和 NBT 是否一致
-        if (ItemStack.isSameItemSameTags(this.representativeStack, otherStack)) {
-            this.sourceEntities.add(entity);
-            this.totalCount += otherStack.getCount();
-            return true;
-        }
+    static long computeRankKey(ItemStack stack) {
+        long rarityRank = Integer.MAX_VALUE - stack.getRarity().ordinal();
+        return (rarityRank << 1) | (stack.isEnchanted() ? 0L : 1L);
+    }
 
-        return false;
+    /** 物品显示名称，缓存后避免排序时反复构造 Component 并转换为字符串 */
+    static String computeNameKey(ItemStack stack) {
+        return stack.getHoverName().getString();
     }
 
+    public int getEntryId() { return entryId; }
+    public ResourceLocation getLootType() { return lootType; }
     public ItemStack getItem() { return representativeStack; }
     public int getCount() { return totalCount; }
-    public List<ItemEntity> getSourceEntities() { return sourceEntities; }
+    public int getSourceCount() { return entityIds.length; }
+
+    /**
+     * 源实体 ID，由近到远排列.
+     * 返回的是内部数组本身 (避免复制)，调用方不得修改。
+     */
+    public int[] getEntityIds() { return entityIds; }
 
     /**
-     * 获取主 ID (用于排序稳定性).
-     * @return 第一个源实体的 ID，如果列表为空返回 -1
+     * 获取主 ID.
+     * @return 最近的源实体的 ID，如果列表为空返回 -1
      */
     public int getPrimaryId() {
-        return sourceEntities.isEmpty() ? -1 : sourceEntities.get(0).getId();
+        return entityIds.length == 0 ? -1 : entityIds[0];
     }
 }
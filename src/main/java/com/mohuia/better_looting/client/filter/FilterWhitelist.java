@@ -21,6 +21,7 @@ import java.nio.file.Path;
 import java.util.LinkedHashSet;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 /**
  * 过滤白名单管理器
@@ -35,7 +36,10 @@ public class FilterWhitelist {
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
 
     // 使用自定义 Entry 类来存储 ID 和 NBT，确保 Set 去重逻辑正确
-    private final Set<WhitelistEntry> entries = new LinkedHashSet<>();
+    // 写时复制：白名单很少修改，而扫描器后台线程会频繁遍历，读取无需加锁且保持插入顺序
+    private final Set<WhitelistEntry> entries = new CopyOnWriteArraySet<>();
+    /** 内容版本号，每次修改递增，供扫描器的分类缓存判断是否失效 */
+    private volatile int version = 0;
     private Path configPath;
 
     /**
@@ -66,6 +70,7 @@ public class FilterWhitelist {
             WhitelistEntry entry = new WhitelistEntry(id.toString(), nbtStr);
 
             if (entries.add(entry)) {
+                version++;
                 save();
             }
         }
@@ -83,6 +88,7 @@ public class FilterWhitelist {
             WhitelistEntry entry = new WhitelistEntry(id.toString(), nbtStr);
 
             if (entries.remove(entry)) {
+                version++;
                 save();
             }
         }
@@ -94,11 +100,12 @@ public class FilterWhitelist {
     public void clear() {
         if (entries.isEmpty()) return;
         entries.clear();
+        version++;
         save();
     }
 
     /**
-     * 检查白名单是否包含该物品（严格比对 NBT）
+     * 检查白名单是否包含该物品（严格比对 NBT），可在任意线程调用
      * @param stack 待检查物品
      * @return true 如果存在于白名单中
      */
@@ -114,6 +121,13 @@ public class FilterWhitelist {
         return false;
     }
 
+    /**
+     * 当前内容版本号，白名单每次变化后递增（可在任意线程读取）
+     */
+    public int getVersion() {
+        return version;
+    }
+
     /**
      * 获取用于 GUI 显示的 ItemStack 列表。
      * <p>
@@ -147,6 +161,7 @@ public class FilterWhitelist {
             if (loaded != null) {
                 entries.clear();
                 entries.addAll(loaded);
+                version++;
             }
         } catch (IOException e) {
             LOGGER.error("Failed to load whitelist", e);
@@ -1,6 +1,7 @@
 package com.mohuia.better_looting.client.overlay;
 
 import com.mohuia.better_looting.client.*;
+import com.mohuia.better_looting.client.core.ScanSnapshot;
 import com.mohuia.better_looting.client.core.VisualItemEntry;
 import com.mohuia.better_looting.config.Config;
 import com.mojang.blaze3d.systems.RenderSystem;
@@ -24,6 +25,12 @@ public class Overlay {
 
     private final OverlayState state = new OverlayState();
     private OverlayRenderer renderer;
+    /** 渲染器缓存对应的快照代数 */
+    private long renderedGeneration = -1;
+    /** 自上次通知渲染器以来累计的变化掩码 (多个 tick 之间只渲染一帧时也不会遗漏) */
+    private int pendingChangeMask = 0;
+    /** 上一帧的布局，输入不变时直接复用 */
+    private OverlayLayout layout;
 
     /**
      * 覆盖层开关状态.
@@ -33,6 +40,14 @@ public class Overlay {
 
     public Overlay() {
         MinecraftForge.EVENT_BUS.register(this);
+        Core.INSTANCE.addScanListener(this::onSnapshot);
+        Core.INSTANCE.setActivationCondition(() -> checkActivationCondition(Minecraft.getInstance()));
+    }
+
+    /** 新快照回调 (主线程)：清理动画状态并累计变化掩码 */
+    private void onSnapshot(ScanSnapshot snapshot) {
+        state.applyDelta(snapshot.getDelta());
+        pendingChangeMask |= snapshot.getChangeMask();
     }
 
     /**
@@ -66,11 +81,17 @@ public class Overlay {
         if (mc.screen != null) return; // 打开 GUI (如背包/聊天框) 时不显示
 
         Core core = Core.INSTANCE;
-        var nearbyItems = core.getNearbyItems();
-        if (nearbyItems == null) return;
+        ScanSnapshot snapshot = core.getSnapshot();
+        var nearbyItems = snapshot.getEntries();
 
         // 延迟初始化渲染器
         if (this.renderer == null) this.renderer = new OverlayRenderer(mc);
+        // 快照代数变化时才通知渲染器，按累计的变化掩码清理派生缓存
+        if (snapshot.getGeneration() != renderedGeneration) {
+            renderedGeneration = snapshot.getGeneration();
+            renderer.onSnapshotChanged(pendingChangeMask);
+            pendingChangeMask = 0;
+        }
 
         // =========================================
         //           1. 状态判断与更新
@@ -81,8 +102,8 @@ public class Overlay {
         // 综合显示条件：列表非空 && 非自动模式 && 满足激活条件(按键/视线等)
         boolean shouldShow = !nearbyItems.isEmpty() && !core.isAutoMode() && conditionMet;
 
-        // 创建布局对象 (Immediate Mode，每帧重新计算布局参数)
-        OverlayLayout layout = new OverlayLayout(mc, state.popupProgress);
+        // 布局参数只随弹出动画、窗口尺寸与配置变化，静止的帧直接复用上一帧的结果
+        OverlayLayout layout = this.layout = OverlayLayout.reuseOrCreate(this.layout, mc, state.popupProgress);
 
         // 更新动画状态机 (弹窗弹出进度、滚动位置平滑插值)
         state.tick(shouldShow, core.getTargetScrollOffset(), nearbyItems.size(), layout.visibleRows);
@@ -90,11 +111,6 @@ public class Overlay {
         // 性能优化：如果完全透明且无需显示，直接跳过后续昂贵的渲染操作
         if (state.popupProgress < 0.001f) return;
 
-        // 定期清理未使用的动画缓存 (每秒一次，防止内存泄漏)
-        if (mc.level != null && mc.level.getGameTime() % 20 == 0) {
-            state.cleanupAnimations(nearbyItems);
-        }
-
         // =========================================
         //           2. 渲染流程
         // =========================================
@@ -125,9 +141,10 @@ public class Overlay {
         // 开启严格裁剪 (Scissor Test)，防止物品渲染溢出列表框背景
         layout.applyStrictScissor();
 
-        for (int i = 0; i < nearbyItems.size(); i++) {
-            // 视锥剔除：跳过视口外的行
-            if (i < startIdx - 1 || i > endIdx + 1) continue;
+        // 视锥剔除：只遍历视口附近的行
+        int firstIdx = Math.max(0, startIdx - 1);
+        int lastIdx = Math.min(nearbyItems.size() - 1, endIdx + 1);
+        for (int i = firstIdx; i <= lastIdx; i++) {
 
             VisualItemEntry entry = nearbyItems.get(i);
             boolean isSelected = (i == core.getSelectedIndex());
@@ -135,7 +152,7 @@ public class Overlay {
             // 动画计算：
             // 1. itemEntryProgress: 单个物品的独立进入动画
             // 2. entryOffset: 根据进度计算 X 轴位移 (从右侧滑入效果)
-            float entryProgress = state.getItemEntryProgress(entry.getPrimaryId());
+            float entryProgress = state.getItemEntryProgress(entry);
             float entryOffset = (1.0f - Utils.easeOutCubic(entryProgress)) * 50.0f;
 
             // 透明度计算：列表顶部和底部的淡出效果
@@ -156,7 +173,7 @@ public class Overlay {
 
             // 执行绘制
             renderer.renderItemRow(gui, Constants.LIST_X, y, layout.panelWidth, entry,
-                    isSelected, finalBgAlpha, finalTextAlpha, !core.isItemInInventory(entry.getItem().getItem()));
+                    isSelected, core.isMarked(entry), finalBgAlpha, finalTextAlpha, !core.isItemInInventory(entry.getItem().getItem()));
 
             if (isSelected) {
                 renderPrompt = true;
@@ -243,7 +260,12 @@ public class Overlay {
         pose.scale(0.75f, 0.75f, 1.0f);
         RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, 1.0F);
 
-        gui.drawString(Minecraft.getInstance().font, "LOOT DETECTED", 0, 0, Utils.colorWithAlpha(0xFFFFD700, titleAlpha), true);
+        var font = Minecraft.getInstance().font;
+        int titleWidth = gui.drawString(font, "LOOT DETECTED", 0, 0, Utils.colorWithAlpha(0xFFFFD700, titleAlpha), true);
+        // 掉落物超出扫描预算、本轮尚未采集完时，列表可能缺少远处的实体，数量也可能滞后
+        if (Core.INSTANCE.getSnapshot().isPartial()) {
+            gui.drawString(font, "SCANNING...", titleWidth + 4, 0, Utils.colorWithAlpha(Constants.COLOR_TEXT_DIM, titleAlpha), true);
+        }
         pose.popPose();
 
         // 绘制分割线
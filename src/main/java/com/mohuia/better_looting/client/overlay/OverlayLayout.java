@@ -9,8 +9,8 @@ import net.minecraft.client.Minecraft;
 /**
  * 布局计算器.
  * <p>
- * 该类在每帧渲染前实例化，负责计算 UI 元素在当前屏幕分辨率下的
- * 绝对坐标、缩放比例以及 OpenGL 裁剪区域 (Scissor Rects)。
+ * 负责计算 UI 元素在当前屏幕分辨率下的绝对坐标、缩放比例以及 OpenGL 裁剪区域 (Scissor Rects)。
+ * 布局只取决于弹出进度、窗口尺寸与配置，{@link #reuseOrCreate} 在这些输入都未变化时复用上一帧的实例。
  */
 public class OverlayLayout {
     // --- 基础布局参数 ---
@@ -29,19 +29,39 @@ public class OverlayLayout {
     private final int scY_strict, scH_strict; // 严格裁剪：用于列表内容，切断边缘
     private final int scY_loose, scH_loose;   // 宽松裁剪：用于选中框的辉光/进度条，允许稍微溢出
 
+    // --- 计算输入 (用于判断能否复用) ---
+    private final float popupProgress;
+    private final int configVersion;
+    private final int windowWidth, windowHeight;
+    private final double guiScale;
+
+    /** 输入未变化时返回 previous，否则重新计算 */
+    public static OverlayLayout reuseOrCreate(OverlayLayout previous, Minecraft mc, float popupProgress) {
+        var win = mc.getWindow();
+        if (previous != null && previous.popupProgress == popupProgress && previous.configVersion == Config.Baked.version
+                && previous.windowWidth == win.getWidth() && previous.windowHeight == win.getHeight()
+                && previous.guiScale == win.getGuiScale()) {
+            return previous;
+        }
+        return new OverlayLayout(mc, popupProgress);
+    }
+
     public OverlayLayout(Minecraft mc, float popupProgress) {
-        var cfg = Config.CLIENT;
-        this.globalAlpha = cfg.globalAlpha.get().floatValue();
-        this.panelWidth = cfg.panelWidth.get();
-        this.visibleRows = cfg.visibleRows.get().floatValue();
+        this.popupProgress = popupProgress;
+        this.configVersion = Config.Baked.version;
+        this.globalAlpha = Config.Baked.globalAlpha;
+        this.panelWidth = Config.Baked.panelWidth;
+        this.visibleRows = (float) Config.Baked.visibleRows;
 
         var win = mc.getWindow();
+        this.windowWidth = win.getWidth();
+        this.windowHeight = win.getHeight();
         // 计算屏幕中心 + 偏移量
-        this.baseX = (float) (win.getGuiScaledWidth() / 2.0f + cfg.xOffset.get());
-        this.baseY = (float) (win.getGuiScaledHeight() / 2.0f + cfg.yOffset.get());
+        this.baseX = (float) (win.getGuiScaledWidth() / 2.0f + Config.Baked.xOffset);
+        this.baseY = (float) (win.getGuiScaledHeight() / 2.0f + Config.Baked.yOffset);
 
         // 动画计算: 弹窗缩放与位移
-        this.finalScale = (float) (cfg.uiScale.get() * Utils.easeOutBack(popupProgress));
+        this.finalScale = (float) (Config.Baked.uiScale * Utils.easeOutBack(popupProgress));
         this.slideOffset = (1.0f - popupProgress) * 30.0f; // 从右侧 30px 处滑入
 
         this.startY = -(Constants.ITEM_HEIGHT / 2); // 垂直居中微调
@@ -50,7 +70,7 @@ public class OverlayLayout {
         // --- Scissor (裁剪) 矩阵计算 ---
         // 注意：RenderSystem.enableScissor 接受的是窗口坐标系的左下角原点，且单位为物理像素。
 
-        double guiScale = win.getGuiScale();
+        double guiScale = this.guiScale = win.getGuiScale();
 
         // 计算 X 轴裁剪范围 (列表宽度 + 左右内边距)
         double localLeft = Constants.LIST_X - 30.0;
@@ -7,11 +7,13 @@ import com.mohuia.better_looting.client.Constants;
 import com.mohuia.better_looting.client.Core;
 import com.mohuia.better_looting.client.KeyInit;
 import com.mohuia.better_looting.client.Utils;
+import com.mohuia.better_looting.client.core.ScanSnapshot;
 import com.mohuia.better_looting.client.core.VisualItemEntry;
 import com.mojang.blaze3d.systems.RenderSystem;
 import net.minecraft.Util;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.GuiGraphics;
+import net.minecraft.client.gui.screens.Screen;
 import net.minecraft.network.chat.Component;
 import net.minecraft.util.Mth;
 import net.minecraft.world.item.EnchantedBookItem;
@@ -20,6 +22,7 @@ import net.minecraft.world.item.TooltipFlag;
 import net.minecraft.world.item.enchantment.Enchantment;
 import net.minecraft.world.item.enchantment.EnchantmentHelper;
 
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -29,14 +32,50 @@ import java.util.Optional;
  * <p>
  * 负责处理客户端的底层 2D 绘制操作，包括物品列表、滚动条、Tooltip 及交互提示。
  * 采用极简风格，使用原版的 {@link GuiGraphics} 进行渲染，并支持 Alpha 动画过渡。
+ * <p>
+ * 行名称与 Tooltip 文本按物品栈实例缓存 (同一分组在生命周期内共享同一个物品栈)，数量文本按条目实例缓存。
+ * 快照代数变化时按变化掩码清理 ({@link #onSnapshotChanged})：成员变化丢弃全部缓存，仅数量变化只丢弃数量文本，
+ * 仅顺序变化时缓存全部保留；列表静止时每帧不再重复解析 NBT 或格式化数量。
  */
 public class OverlayRenderer {
     private final Minecraft mc;
 
+    /** Tooltip 文本的最长复用时间 (GUI tick)，让随时间变化的模组提示行 (冷却、充能等) 也能及时刷新 */
+    private static final int TOOLTIP_REFRESH_TICKS = 10;
+
+    // ===== 派生缓存 =====
+    /** 物品栈 -> 行显示名称 */
+    private final Map<ItemStack, Component> nameCache = new IdentityHashMap<>();
+    /** 条目 -> 数量文本 (数量变化的条目在新快照中是新实例) */
+    private final Map<VisualItemEntry, String> countTextCache = new IdentityHashMap<>();
+    /** 最近一次 Tooltip 的物品栈、模式、修饰键状态、生成时间及其文本与宽度 */
+    private ItemStack tooltipStack;
+    private boolean tooltipAdvanced;
+    private int tooltipModifiers;
+    private int tooltipTick;
+    private List<Component> tooltipLines = List.of();
+    private int tooltipWidth;
+
     public OverlayRenderer(Minecraft mc) {
         this.mc = mc;
     }
 
+    /**
+     * 快照代数变化时调用.
+     * @param changeMask 自上次调用以来累计的变化掩码 ({@code ScanSnapshot.CHANGE_*} 的组合)
+     */
+    public void onSnapshotChanged(int changeMask) {
+        if ((changeMask & ScanSnapshot.CHANGE_MEMBERSHIP) != 0) {
+            // 已移除条目的物品栈不再被引用
+            nameCache.clear();
+            countTextCache.clear();
+            tooltipStack = null;
+            tooltipLines = List.of();
+        } else if ((changeMask & ScanSnapshot.CHANGE_COUNTS) != 0) {
+            countTextCache.clear();
+        }
+    }
+
     // =========================================
     //            1. 顶部过滤器标签
     // =========================================
@@ -79,7 +118,7 @@ public class OverlayRenderer {
      * @param textAlpha 文本和图标的全局透明度
      * @param isNew     是否标记为新获得的物品
      */
-    public void renderItemRow(GuiGraphics gui, int x, int y, int width, VisualItemEntry entry, boolean selected, float bgAlpha, float textAlpha, boolean isNew) {
+    public void renderItemRow(GuiGraphics gui, int x, int y, int width, VisualItemEntry entry, boolean selected, boolean marked, float bgAlpha, float textAlpha, boolean isNew) {
         ItemStack stack = entry.getItem();
         int count = entry.getCount();
 
@@ -90,13 +129,19 @@ public class OverlayRenderer {
         RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, 1.0F);
         int alpha255 = (int)(textAlpha * 255);
 
+        // 1.1 多选标记 (右侧竖条)
+        if (marked) {
+            gui.fill(x + width - 2, y + 2, x + width, y + Constants.ITEM_HEIGHT - 2,
+                    Utils.colorWithAlpha(Constants.COLOR_MARKED, alpha255));
+        }
+
         // 2. 渲染稀有度指示条 (左侧竖线)
         gui.fill(x + 20, y + 3, x + 21, y + Constants.ITEM_HEIGHT - 3,
                 Utils.colorWithAlpha(Utils.getItemStackDisplayColor(stack), alpha255));
 
         // 3. 渲染物品图标与自定义数量标识
         gui.renderItem(stack, x + 3, y + 3);
-        String countText = (count > 1) ? compactCount(count) : null;
+        String countText = (count > 1) ? countTextCache.computeIfAbsent(entry, e -> compactCount(e.getCount())) : null;
         // 覆写原版数量渲染，以支持 >64 的超大数量显示
         gui.renderItemDecorations(mc.font, stack, x + 3, y + 3, countText);
 
@@ -110,16 +155,7 @@ public class OverlayRenderer {
         pose.translate(x + 26, y + 8, 0);
         pose.scale(0.75f, 0.75f, 1.0f);
 
-        Component displayName = stack.getHoverName();
-
-        // 附魔书特判：提取其第一个附魔作为展示名称（保留原版原生的颜色格式，如诅咒的红色）
-        if (stack.getItem() instanceof EnchantedBookItem) {
-            Map<Enchantment, Integer> enchants = EnchantmentHelper.getEnchantments(stack);
-            if (!enchants.isEmpty()) {
-                Map.Entry<Enchantment, Integer> enchantEntry = enchants.entrySet().iterator().next();
-                displayName = enchantEntry.getKey().getFullname(enchantEntry.getValue());
-            }
-        }
+        Component displayName = nameCache.computeIfAbsent(stack, OverlayRenderer::computeDisplayName);
 
         // 渲染文本。由于 displayName 自带 Style 颜色，会覆盖 textColor 的 RGB 部分，但会继承其 Alpha 透明度
         gui.drawString(mc.font, displayName, 0, 0, textColor, false);
@@ -135,6 +171,18 @@ public class OverlayRenderer {
         }
     }
 
+    private static Component computeDisplayName(ItemStack stack) {
+        // 附魔书特判：提取其第一个附魔作为展示名称（保留原版原生的颜色格式，如诅咒的红色）
+        if (stack.getItem() instanceof EnchantedBookItem) {
+            Map<Enchantment, Integer> enchants = EnchantmentHelper.getEnchantments(stack);
+            if (!enchants.isEmpty()) {
+                Map.Entry<Enchantment, Integer> enchantEntry = enchants.entrySet().iterator().next();
+                return enchantEntry.getKey().getFullname(enchantEntry.getValue());
+            }
+        }
+        return stack.getHoverName();
+    }
+
     /** 格式化超大数量 (例如：10500 -> 10k) */
     private String compactCount(int count) {
         if (count >= 10000) return (count / 1000) + "k";
@@ -262,16 +310,27 @@ public class OverlayRenderer {
     public void renderTooltip(GuiGraphics gui, ItemStack stack, int screenW, int screenH, OverlayLayout layout, float currentScroll, int selIndex) {
         RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, 1.0F);
 
-        List<Component> lines = stack.getTooltipLines(mc.player, mc.options.advancedItemTooltips ? TooltipFlag.Default.ADVANCED : TooltipFlag.Default.NORMAL);
+        // 选中项、提示模式与修饰键 (许多模组按住 Shift / Ctrl / Alt 显示额外信息) 均不变时，短时间内复用上一帧的文本与宽度
+        boolean advanced = mc.options.advancedItemTooltips;
+        int modifiers = (Screen.hasShiftDown() ? 1 : 0) | (Screen.hasControlDown() ? 2 : 0) | (Screen.hasAltDown() ? 4 : 0);
+        int tick = mc.gui.getGuiTicks();
+        if (stack != tooltipStack || advanced != tooltipAdvanced || modifiers != tooltipModifiers
+                || tick - tooltipTick >= TOOLTIP_REFRESH_TICKS) {
+            tooltipStack = stack;
+            tooltipAdvanced = advanced;
+            tooltipModifiers = modifiers;
+            tooltipTick = tick;
+            tooltipLines = stack.getTooltipLines(mc.player, advanced ? TooltipFlag.Default.ADVANCED : TooltipFlag.Default.NORMAL);
+            tooltipWidth = 0;
+            for (Component line : tooltipLines) {
+                tooltipWidth = Math.max(tooltipWidth, mc.font.width(line));
+            }
+        }
+        List<Component> lines = tooltipLines;
         if (lines.isEmpty()) return;
 
         // 估算 Tooltip 尺寸
-        int maxTextWidth = 0;
-        for (Component line : lines) {
-            int w = mc.font.width(line);
-            if (w > maxTextWidth) maxTextWidth = w;
-        }
-        int tooltipWidthEst = maxTextWidth + 24;
+        int tooltipWidthEst = tooltipWidth + 24;
         int tooltipHeightEst = lines.size() * 10 + 12;
 
         // 计算物品基于屏幕的实际 Y 轴中心点
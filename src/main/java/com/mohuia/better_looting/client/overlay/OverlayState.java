@@ -1,10 +1,10 @@
 package com.mohuia.better_looting.client.overlay;
 
+import com.mohuia.better_looting.client.core.ScanDelta;
 import com.mohuia.better_looting.client.core.VisualItemEntry;
 import net.minecraft.util.Mth;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * HUD 动画状态容器.
@@ -18,7 +18,8 @@ public class OverlayState {
     /** 弹窗整体弹出进度 (0.0 = 隐藏, 1.0 = 完全显示) */
     public float popupProgress = 0f;
 
-    // 缓存每个物品实体的进入动画进度 (EntityID -> Progress 0.0~1.0)
+    // 缓存每个条目的进入动画进度 (Entry ID -> Progress 0.0~1.0)
+    // 条目内容变化时会被替换为新实例，但分组 ID 不变，因此首个源实体被拾取时动画不会重新播放
     private final Map<Integer, Float> itemEntryAnimations = new HashMap<>();
 
     // 时间追踪 (纳秒)
@@ -70,8 +71,8 @@ public class OverlayState {
      * 获取单个物品的进入动画进度.
      * 如果是新物品，从 0 开始增加；如果是旧物品，保持 1.
      */
-    public float getItemEntryProgress(int entityId) {
-        return itemEntryAnimations.compute(entityId, (k, v) -> {
+    public float getItemEntryProgress(VisualItemEntry entry) {
+        return itemEntryAnimations.compute(entry.getEntryId(), (k, v) -> {
             float val = (v == null) ? 0f : v;
             if (val >= 1.0f) return 1.0f;
 
@@ -81,12 +82,11 @@ public class OverlayState {
         });
     }
 
-    /** 清理已经不存在的实体的动画状态 */
-    public void cleanupAnimations(List<VisualItemEntry> currentItems) {
-        Set<Integer> currentIds = currentItems.stream()
-                .map(VisualItemEntry::getPrimaryId)
-                .collect(Collectors.toSet());
-        itemEntryAnimations.keySet().retainAll(currentIds);
+    /** 根据扫描增量清理已被移除条目的动画状态 */
+    public void applyDelta(ScanDelta delta) {
+        for (VisualItemEntry entry : delta.getRemoved()) {
+            itemEntryAnimations.remove(entry.getEntryId());
+        }
     }
 
     /**
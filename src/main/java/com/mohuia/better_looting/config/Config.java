@@ -1,12 +1,18 @@
 package com.mohuia.better_looting.config;
 
 import com.mohuia.better_looting.BetterLooting;
+import com.mohuia.better_looting.network.C2S.PacketBatchPickup;
+import net.minecraft.resources.ResourceLocation;
 import net.minecraftforge.common.ForgeConfigSpec;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.event.config.ModConfigEvent;
 import org.apache.commons.lang3.tuple.Pair;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * 模组的核心配置类。
  * <p>
@@ -29,6 +35,15 @@ public class Config {
     public enum ActivationMode { ALWAYS, LOOK_DOWN, STAND_STILL, KEY_HOLD, KEY_TOGGLE }
     /** 滚动模式枚举 */
     public enum ScrollMode { ALWAYS, KEY_BIND, STAND_STILL }
+    /** 列表排序模式枚举：稀有度 / 距离最近 / 数量最多 / 估值最高 */
+    public enum SortMode {
+        RARITY, DISTANCE, COUNT, VALUE;
+
+        public SortMode next() {
+            SortMode[] values = values();
+            return values[(ordinal() + 1) % values.length];
+        }
+    }
 
     /**
      * 客户端配置定义类。
@@ -45,6 +60,19 @@ public class Config {
         public static final ActivationMode DEFAULT_MODE = ActivationMode.ALWAYS;
         public static final ScrollMode DEFAULT_SCROLL_MODE = ScrollMode.ALWAYS;
         public static final double DEFAULT_ANGLE = 45.0;
+        public static final boolean DEFAULT_COLLECTOR_MODE = false;
+        public static final double DEFAULT_COLLECTOR_RADIUS = 4.0;
+        public static final SortMode DEFAULT_SORT_MODE = SortMode.RARITY;
+        public static final boolean DEFAULT_CROSSHAIR_TARGETING = false;
+        public static final int DEFAULT_SCAN_BUDGET_ENTITIES = 1024;
+        public static final int DEFAULT_SCAN_BUDGET_MICROS = 0;
+        public static final List<String> DEFAULT_ITEM_VALUES = List.of(
+                "minecraft:netherite_ingot=500",
+                "minecraft:diamond=100",
+                "minecraft:emerald=50",
+                "minecraft:gold_ingot=20",
+                "minecraft:iron_ingot=10"
+        );
 
         // --- 配置项 (ConfigValue) ---
         public final ForgeConfigSpec.DoubleValue xOffset;
@@ -56,6 +84,13 @@ public class Config {
         public final ForgeConfigSpec.EnumValue<ActivationMode> activationMode;
         public final ForgeConfigSpec.EnumValue<ScrollMode> scrollMode;
         public final ForgeConfigSpec.DoubleValue lookDownAngle;
+        public final ForgeConfigSpec.BooleanValue collectorMode;
+        public final ForgeConfigSpec.DoubleValue collectorRadius;
+        public final ForgeConfigSpec.EnumValue<SortMode> sortMode;
+        public final ForgeConfigSpec.ConfigValue<List<? extends String>> itemValues;
+        public final ForgeConfigSpec.BooleanValue crosshairTargeting;
+        public final ForgeConfigSpec.IntValue scanBudgetEntities;
+        public final ForgeConfigSpec.IntValue scanBudgetMicros;
 
         ClientConfig(ForgeConfigSpec.Builder builder) {
             builder.push("client"); // 开始 "client" 分类
@@ -70,6 +105,17 @@ public class Config {
             activationMode = builder.defineEnum("activationMode", DEFAULT_MODE);
             scrollMode = builder.defineEnum("scrollMode", DEFAULT_SCROLL_MODE);
             lookDownAngle = builder.defineInRange("lookDownAngle", DEFAULT_ANGLE, 0.0, 90.0);
+            // 收集者模式：以玩家为球心的大半径扫描，上限与服务端拾取校验距离一致
+            collectorMode = builder.define("collectorMode", DEFAULT_COLLECTOR_MODE);
+            collectorRadius = builder.defineInRange("collectorRadius", DEFAULT_COLLECTOR_RADIUS, 1.0, PacketBatchPickup.MAX_PICKUP_DISTANCE);
+            sortMode = builder.defineEnum("sortMode", DEFAULT_SORT_MODE);
+            // 估值表：VALUE 排序模式下单个物品的价值，格式 "命名空间:物品ID=价值"，未列出的物品价值为 0
+            itemValues = builder.defineListAllowEmpty("itemValues", DEFAULT_ITEM_VALUES, o -> o instanceof String);
+            // 准星选取：自动选中准星所指的掉落物所在的行，单次拾取只拾取该实体
+            crosshairTargeting = builder.define("crosshairTargeting", DEFAULT_CROSSHAIR_TARGETING);
+            // 扫描预算：每 tick 最多采集的实体数量 / 耗时 (微秒)，0 表示不限；超出时剩余实体在后续 tick 轮流采集
+            scanBudgetEntities = builder.defineInRange("scanBudgetEntities", DEFAULT_SCAN_BUDGET_ENTITIES, 0, 100000);
+            scanBudgetMicros = builder.defineInRange("scanBudgetMicros", DEFAULT_SCAN_BUDGET_MICROS, 0, 50000);
 
             builder.pop();
         }
@@ -93,9 +139,20 @@ public class Config {
         public static ActivationMode activationMode;
         public static ScrollMode scrollMode;
         public static double lookDownAngle;
+        public static boolean collectorMode;
+        public static double collectorRadius;
+        public static SortMode sortMode = ClientConfig.DEFAULT_SORT_MODE;
+        /** 解析后的估值表 (不可变，刷新时整体替换，可安全地交给扫描器后台线程读取) */
+        public static Map<ResourceLocation, Integer> itemValues = Map.of();
+        public static boolean crosshairTargeting;
+        public static int scanBudgetEntities = ClientConfig.DEFAULT_SCAN_BUDGET_ENTITIES;
+        public static int scanBudgetMicros;
+        /** 刷新计数，每次 {@link #refresh()} 递增；派生缓存 (如 HUD 布局) 据此判断配置是否变化 */
+        public static int version;
 
         /** 从 Forge 配置对象同步值到静态字段 */
         public static void refresh() {
+            version++;
             xOffset = CLIENT.xOffset.get();
             yOffset = CLIENT.yOffset.get();
             uiScale = CLIENT.uiScale.get().floatValue();
@@ -105,6 +162,29 @@ public class Config {
             activationMode = CLIENT.activationMode.get();
             scrollMode = CLIENT.scrollMode.get();
             lookDownAngle = CLIENT.lookDownAngle.get();
+            collectorMode = CLIENT.collectorMode.get();
+            collectorRadius = CLIENT.collectorRadius.get();
+            sortMode = CLIENT.sortMode.get();
+            itemValues = parseItemValues(CLIENT.itemValues.get());
+            crosshairTargeting = CLIENT.crosshairTargeting.get();
+            scanBudgetEntities = CLIENT.scanBudgetEntities.get();
+            scanBudgetMicros = CLIENT.scanBudgetMicros.get();
+        }
+
+        /** 解析 "id=value" 形式的估值表，忽略格式错误的行 */
+        private static Map<ResourceLocation, Integer> parseItemValues(List<? extends String> lines) {
+            Map<ResourceLocation, Integer> result = new HashMap<>();
+            for (String line : lines) {
+                int split = line.lastIndexOf('=');
+                if (split <= 0) continue;
+                ResourceLocation id = ResourceLocation.tryParse(line.substring(0, split).trim());
+                if (id == null) continue;
+                try {
+                    result.put(id, Integer.parseInt(line.substring(split + 1).trim()));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+            return Map.copyOf(result);
         }
     }
 
@@ -2,6 +2,7 @@ package com.mohuia.better_looting.config;
 
 import com.mohuia.better_looting.BetterLooting;
 import com.mohuia.better_looting.client.Constants;
+import com.mohuia.better_looting.client.core.ScanSnapshot;
 import com.mohuia.better_looting.client.core.VisualItemEntry;
 import com.mohuia.better_looting.client.overlay.OverlayRenderer;
 import com.mojang.blaze3d.vertex.PoseStack;
@@ -14,7 +15,6 @@ import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.Items;
 import net.minecraftforge.client.gui.widget.ForgeSlider;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -30,8 +30,8 @@ public class ConfigScreen extends Screen {
     private final DragController dragController;
     private OverlayRenderer renderer;
 
-    /** 用于预览显示的虚拟物品列表 */
-    private final List<VisualItemEntry> previewItems = new ArrayList<>();
+    /** 用于预览显示的虚拟物品列表 (静态快照，与游戏内 HUD 使用相同的数据结构) */
+    private final ScanSnapshot preview;
 
     // 缓存当前预览框的屏幕绝对坐标 (用于鼠标交互检测)
     private float boxLeft, boxTop, boxRight, boxBottom;
@@ -46,17 +46,22 @@ public class ConfigScreen extends Screen {
         this.dragController = new DragController();
 
         // 初始化预览用的假数据 (模拟真实游戏中的掉落物)
-        previewItems.add(new VisualItemEntry(new ItemStack(Items.DIAMOND, 1)));
-        previewItems.add(new VisualItemEntry(new ItemStack(Items.GOLDEN_APPLE, 1)));
-        previewItems.add(new VisualItemEntry(new ItemStack(Items.IRON_SWORD, 1)));
-        previewItems.add(new VisualItemEntry(new ItemStack(Items.EMERALD, 64)));
-        previewItems.add(new VisualItemEntry(new ItemStack(Items.BOOK, 1)));
+        this.preview = ScanSnapshot.preview(List.of(
+                new VisualItemEntry(new ItemStack(Items.DIAMOND, 1)),
+                new VisualItemEntry(new ItemStack(Items.GOLDEN_APPLE, 1)),
+                new VisualItemEntry(new ItemStack(Items.IRON_SWORD, 1)),
+                new VisualItemEntry(new ItemStack(Items.EMERALD, 64)),
+                new VisualItemEntry(new ItemStack(Items.BOOK, 1))
+        ));
     }
 
     @Override
     protected void init() {
         // 延迟初始化渲染器
-        if (this.renderer == null) this.renderer = new OverlayRenderer(this.minecraft);
+        if (this.renderer == null) {
+            this.renderer = new OverlayRenderer(this.minecraft);
+            this.renderer.onSnapshotChanged(preview.getChangeMask());
+        }
 
         int cx = this.width / 2;
         int bottomBase = this.height - 30;
@@ -187,10 +192,11 @@ public class ConfigScreen extends Screen {
         gui.enableScissor(0, (int)Math.max(0, boxTop), this.width, (int)Math.min(this.height, boxBottom));
 
         int startY = -(Constants.ITEM_HEIGHT / 2);
+        List<VisualItemEntry> previewItems = preview.getEntries();
         for (int i = 0; i < previewItems.size(); i++) {
             int y = startY + (i * (Constants.ITEM_HEIGHT + 2));
             renderer.renderItemRow(gui, Constants.LIST_X, y, viewModel.panelWidth,
-                    previewItems.get(i), i == 0, (float)viewModel.globalAlpha, 1.0f, i == 1);
+                    previewItems.get(i), i == 0, false, (float)viewModel.globalAlpha, 1.0f, i == 1);
         }
 
         gui.disableScissor();
@@ -0,0 +1,65 @@
+package com.mohuia.better_looting.loot;
+
+import com.mohuia.better_looting.mixin.AbstractArrowAccessor;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.projectile.AbstractArrow;
+import net.minecraft.world.entity.projectile.Arrow;
+import net.minecraft.world.entity.projectile.ThrownTrident;
+import net.minecraft.world.item.ItemStack;
+
+/**
+ * 插在地上的箭与三叉戟 ({@link AbstractArrow}) 提供者.
+ * 只有玩家射出、允许拾取的箭才会出现在列表中；拾取时调用原版的 tryPickup，保留药箭效果与忠诚三叉戟的归属判定。
+ * <p>
+ * 拾取权限 ({@link AbstractArrow#pickup}) 不会同步到客户端：客户端只能根据射击者推断 (玩家射出为允许，创造模式为仅创造)，
+ * 无限附魔与多重射击的额外箭矢在客户端会被误判为可拾取。实际权限由服务端的 {@link #isLootable} 校验，
+ * 被拒绝的实体通过拾取确认告知客户端并保持隐藏，不会回滚到列表中闪烁。
+ * </p>
+ */
+public class ArrowLootProvider implements LootProvider<AbstractArrow> {
+
+    private final ResourceLocation id;
+
+    ArrowLootProvider(ResourceLocation id) {
+        this.id = id;
+    }
+
+    @Override
+    public ResourceLocation getId() { return id; }
+
+    /** 客户端上的拾取权限是推断值，以服务端的判定为准 (见类注释) */
+    @Override
+    public boolean isLootable(AbstractArrow arrow) {
+        return arrow.isAlive() && ((AbstractArrowAccessor) arrow).betterLooting$isInGround()
+                && arrow.pickup == AbstractArrow.Pickup.ALLOWED;
+    }
+
+    /** 每次调用都会创建新的物品栈 (三叉戟为完整的 NBT 复制)，由 {@link #getDisplayStackVersion} 控制缓存 */
+    @Override
+    public ItemStack getDisplayStack(AbstractArrow arrow) {
+        return ((AbstractArrowAccessor) arrow).betterLooting$getPickupItem();
+    }
+
+    /** 客户端只同步了药箭颜色与三叉戟的附魔光效，插在地上后拾取物品只会随这两项变化 */
+    @Override
+    public int getDisplayStackVersion(AbstractArrow arrow) {
+        if (arrow instanceof Arrow tipped) return tipped.getColor();
+        if (arrow instanceof ThrownTrident trident) return trident.isFoil() ? 1 : 0;
+        return 0;
+    }
+
+    @Override
+    public void collect(AbstractArrow arrow, PickupSession session) {
+        if (arrow.shakeTime > 0) return;
+
+        ServerPlayer player = session.getPlayer();
+        if (((AbstractArrowAccessor) arrow).betterLooting$tryPickup(player)) {
+            session.consume(1);
+            player.take(arrow, 1);
+            arrow.discard();
+        } else {
+            session.markFull();
+        }
+    }
+}
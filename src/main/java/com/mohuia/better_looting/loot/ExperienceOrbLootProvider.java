@@ -0,0 +1,60 @@
+package com.mohuia.better_looting.loot;
+
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.ExperienceOrb;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+
+/**
+ * 经验球 ({@link ExperienceOrb}) 提供者.
+ * 列表中以附魔之瓶图标显示，数量为经验值；拾取不占用背包，也不计入单次拾取配额。
+ * 拾取遵守原版的吸收冷却 ({@code takeXpDelay})：每次只吸收一个经验球，冷却中或合并后仍有剩余的经验球
+ * 保持存活并作为剩余实体报告给客户端，由后续拾取继续吸收，吸收速率与原版接触拾取一致。
+ */
+public class ExperienceOrbLootProvider implements LootProvider<ExperienceOrb> {
+
+    private final ResourceLocation id;
+    /** 所有经验球共享同一个显示物品栈，使它们合并为一行 */
+    private ItemStack displayStack;
+
+    ExperienceOrbLootProvider(ResourceLocation id) {
+        this.id = id;
+    }
+
+    @Override
+    public ResourceLocation getId() { return id; }
+
+    @Override
+    public boolean isLootable(ExperienceOrb entity) {
+        return entity.isAlive();
+    }
+
+    @Override
+    public ItemStack getDisplayStack(ExperienceOrb entity) {
+        if (displayStack == null) {
+            displayStack = new ItemStack(Items.EXPERIENCE_BOTTLE)
+                    .setHoverName(Component.translatable("entity.minecraft.experience_orb"));
+        }
+        return displayStack;
+    }
+
+    @Override
+    public int getCount(ExperienceOrb entity, ItemStack displayStack) {
+        return entity.getValue();
+    }
+
+    @Override
+    public boolean requiresInventorySpace() {
+        return false;
+    }
+
+    @Override
+    public void collect(ExperienceOrb orb, PickupSession session) {
+        // 复用原版的吸收逻辑 (冷却判定、经验修补、统计与合并计数)，冷却中时不吸收
+        ServerPlayer player = session.getPlayer();
+        if (player.takeXpDelay > 0) return;
+        orb.playerTouch(player);
+    }
+}
@@ -0,0 +1,123 @@
+package com.mohuia.better_looting.loot;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.item.ItemEntity;
+import net.minecraft.world.item.ItemStack;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+
+/**
+ * 掉落物 ({@link ItemEntity}) 提供者.
+ * 服务端拾取时复制地面物品栈尝试放入背包，按实际放入的数量扣减地面物品，并处理 pickupDelay 冷却。
+ */
+public class ItemLootProvider implements LootProvider<ItemEntity> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ItemLootProvider.class);
+
+    // =========================================
+    //            反射缓存字段
+    // =========================================
+
+    private static Field PICKUP_DELAY_FIELD;
+    private static boolean reflectionFailed = false;
+
+    /*
+     * 静态初始化块：预先查找 ItemEntity 的 pickupDelay 字段。
+     * 相比于 NBT 序列化检查，反射读取 int 字段在大量物品场景下性能提升显著。
+     */
+    static {
+        try {
+            // 1. 尝试开发环境映射 (MojMap/Official)
+            PICKUP_DELAY_FIELD = ItemEntity.class.getDeclaredField("pickupDelay");
+            PICKUP_DELAY_FIELD.setAccessible(true);
+        } catch (NoSuchFieldException e) {
+            try {
+                // 2. 尝试生产环境混淆名 (SRG Name)
+                // 注意：field_70292_b 是 1.20.1 对应的 SRG 字段名，若映射表更新需核对
+                PICKUP_DELAY_FIELD = ItemEntity.class.getDeclaredField("field_70292_b");
+                PICKUP_DELAY_FIELD.setAccessible(true);
+            } catch (NoSuchFieldException ex) {
+                LOGGER.error("BetterLooting: 无法通过反射找到 pickupDelay 字段，将回退到 NBT 检查模式。", ex);
+                reflectionFailed = true;
+            }
+        }
+    }
+
+    private final ResourceLocation id;
+
+    ItemLootProvider(ResourceLocation id) {
+        this.id = id;
+    }
+
+    @Override
+    public ResourceLocation getId() { return id; }
+
+    @Override
+    public boolean isLootable(ItemEntity entity) {
+        return entity.isAlive() && !entity.getItem().isEmpty();
+    }
+
+    @Override
+    public ItemStack getDisplayStack(ItemEntity entity) {
+        return entity.getItem();
+    }
+
+    @Override
+    public void collect(ItemEntity itemEntity, PickupSession session) {
+        // 检查物品是否处于“捡起冷却”状态
+        if (!canPickup(itemEntity)) return;
+
+        ServerPlayer player = session.getPlayer();
+        ItemStack groundStack = itemEntity.getItem();
+        int amountToTake = Math.min(groundStack.getCount(), session.getRemainingQuota());
+
+        // 模拟拾取：复制物品栈并尝试加入玩家背包
+        ItemStack stackToPickup = groundStack.copy();
+        stackToPickup.setCount(amountToTake);
+
+        if (player.getInventory().add(stackToPickup)) {
+            // 计算实际进入背包的数量（以防背包只能装下一部分）
+            int actuallyPickedUp = amountToTake - stackToPickup.getCount();
+            session.consume(actuallyPickedUp);
+
+            // 更新服务端数据：触发捡起统计、扣除地面物品数量
+            player.take(itemEntity, actuallyPickedUp);
+            groundStack.shrink(actuallyPickedUp);
+
+            if (groundStack.isEmpty()) {
+                itemEntity.discard(); // 物品被捡完，移除实体
+            } else {
+                itemEntity.setItem(groundStack); // 更新剩余数量
+                // 如果还有剩余没捡起来（说明背包满了），标记状态
+                if (!stackToPickup.isEmpty()) session.markFull();
+            }
+        } else {
+            session.markFull(); // 添加失败，背包已满
+        }
+    }
+
+    /**
+     * 检查物品是否可以被拾取 (PickupDelay <= 0).
+     * 优先使用反射直接读取字段，失败则回退到 NBT。
+     */
+    private static boolean canPickup(ItemEntity itemEntity) {
+        if (reflectionFailed || PICKUP_DELAY_FIELD == null) {
+            // Fallback: 仅当反射初始化失败时，才执行较昂贵的 NBT 读写
+            CompoundTag tag = new CompoundTag();
+            itemEntity.saveWithoutId(tag);
+            return tag.getShort("PickupDelay") <= 0;
+        }
+
+        try {
+            // Fast Path: 直接内存读取 int
+            int delay = PICKUP_DELAY_FIELD.getInt(itemEntity);
+            return delay <= 0;
+        } catch (IllegalAccessException e) {
+            // 理论上 setAccessible(true) 后不会发生，但若发生则拒绝拾取以保安全
+            return false;
+        }
+    }
+}
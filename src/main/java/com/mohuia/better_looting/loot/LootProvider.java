@@ -0,0 +1,66 @@
+package com.mohuia.better_looting.loot;
+
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.item.ItemStack;
+
+/**
+ * 可拾取实体提供者 (SPI).
+ * <p>
+ * 每个提供者负责一种或多种实体类型 (通过 {@link LootProviders#register} 按 {@link net.minecraft.world.entity.EntityType} 注册)，
+ * 向客户端扫描器提供显示用的物品栈与数量，并在服务端执行实际的拾取。
+ * 扫描器以 "提供者 + 显示物品 + NBT" 作为合并键，不同提供者的实体永远不会合并到同一行。
+ * </p>
+ * <p>
+ * 传入的实体保证属于注册时声明的实体类型。客户端方法在主线程调用，服务端方法在服务端主线程调用。
+ * </p>
+ *
+ * @param <T> 实体类型
+ */
+public interface LootProvider<T extends Entity> {
+
+    /** {@link #getDisplayStackVersion} 的默认值：不缓存，每次采集都调用 {@link #getDisplayStack} */
+    int UNVERSIONED = Integer.MIN_VALUE;
+
+    /** 提供者 ID，作为拾取数据包中的类型标签，两端必须一致 */
+    ResourceLocation getId();
+
+    /** 实体当前是否可被拾取 (两端均会调用：客户端用于扫描，服务端用于校验) */
+    boolean isLootable(T entity);
+
+    /**
+     * 列表中显示的物品栈 (客户端).
+     * 返回值可以是实体内部或共享的实例，调用方不会修改它。
+     */
+    ItemStack getDisplayStack(T entity);
+
+    /**
+     * 显示物品栈的版本号 (客户端).
+     * <p>
+     * {@link #getDisplayStack} 每次都创建新实例的提供者应覆盖此方法，返回决定显示物品的实体数据的摘要：
+     * 版本号不变时扫描器复用该实体上一次的物品栈，不再重复创建，合并时也能按引用判断显示物品没有变化。
+     * </p>
+     */
+    default int getDisplayStackVersion(T entity) {
+        return UNVERSIONED;
+    }
+
+    /** 计入列表总数的数量，默认为显示物品栈的数量 */
+    default int getCount(T entity, ItemStack displayStack) {
+        return displayStack.getCount();
+    }
+
+    /**
+     * 拾取后是否占用背包空间 (客户端).
+     * 返回 false 的提供者 (如经验球) 在背包已满时仍会参与自动拾取。
+     */
+    default boolean requiresInventorySpace() {
+        return true;
+    }
+
+    /**
+     * 拾取实体 (服务端).
+     * 距离与 {@link #isLootable} 已由调用方校验；实现应通过 {@link PickupSession} 扣除配额并报告背包已满。
+     */
+    void collect(T entity, PickupSession session);
+}
@@ -0,0 +1,68 @@
+package com.mohuia.better_looting.loot;
+
+import com.mohuia.better_looting.BetterLooting;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntityType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 可拾取实体提供者注册表.
+ * <p>
+ * 按实体类型索引，扫描与拾取时只需一次哈希查找 ({@link Entity#getType()})，无需逐个 instanceof 判断。
+ * 内置提供者：掉落物、经验球、箭与三叉戟。其他模组可在模组构造阶段调用 {@link #register} 注册自己的实体 (如战利品袋)。
+ * </p>
+ */
+public final class LootProviders {
+
+    private static final Map<EntityType<?>, LootProvider<?>> BY_TYPE = new ConcurrentHashMap<>();
+    private static final Map<ResourceLocation, LootProvider<?>> BY_ID = new ConcurrentHashMap<>();
+
+    public static final ItemLootProvider ITEM = new ItemLootProvider(id("item"));
+    public static final ExperienceOrbLootProvider EXPERIENCE_ORB = new ExperienceOrbLootProvider(id("experience_orb"));
+    public static final ArrowLootProvider ARROW = new ArrowLootProvider(id("arrow"));
+
+    static {
+        register(EntityType.ITEM, ITEM);
+        register(EntityType.EXPERIENCE_ORB, EXPERIENCE_ORB);
+        register(EntityType.ARROW, ARROW);
+        register(EntityType.SPECTRAL_ARROW, ARROW);
+        register(EntityType.TRIDENT, ARROW);
+    }
+
+    private LootProviders() {}
+
+    /**
+     * 为实体类型注册提供者.
+     * 同一提供者可以注册到多个实体类型；同一实体类型重复注册时后者覆盖前者。
+     */
+    public static <T extends Entity> void register(EntityType<? extends T> type, LootProvider<T> provider) {
+        BY_TYPE.put(type, provider);
+        BY_ID.put(provider.getId(), provider);
+    }
+
+    /**
+     * 查找实体对应的提供者.
+     * @return 提供者；实体类型未注册时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public static LootProvider<Entity> find(Entity entity) {
+        // 注册时已保证提供者能处理该类型的实体
+        return (LootProvider<Entity>) BY_TYPE.get(entity.getType());
+    }
+
+    /**
+     * 按 ID 查找提供者 (数据包中的类型标签).
+     * @return 提供者；未知 ID (如另一端缺少对应模组) 时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public static LootProvider<Entity> get(ResourceLocation id) {
+        return (LootProvider<Entity>) BY_ID.get(id);
+    }
+
+    private static ResourceLocation id(String path) {
+        return ResourceLocation.fromNamespaceAndPath(BetterLooting.MODID, path);
+    }
+}
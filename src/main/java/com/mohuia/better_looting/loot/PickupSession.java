@@ -0,0 +1,43 @@
+package com.mohuia.better_looting.loot;
+
+import net.minecraft.server.level.ServerPlayer;
+
+/**
+ * 单个拾取数据包的处理上下文 (服务端).
+ * 记录剩余配额与处理结果，由数据包在所有实体处理完毕后统一播放音效与提示。
+ * 配额按数据包中的每一段分别计算。
+ */
+public class PickupSession {
+    private final ServerPlayer player;
+    private int remainingQuota;
+    private boolean anySuccess = false;
+    private boolean anyFull = false;
+
+    public PickupSession(ServerPlayer player, int quota) {
+        this.player = player;
+        this.remainingQuota = quota;
+    }
+
+    /** 开始处理新的一段，重置配额 (音效与提示所需的结果在整个数据包内累计) */
+    public void beginSegment(int quota) {
+        this.remainingQuota = quota;
+    }
+
+    public ServerPlayer getPlayer() { return player; }
+    public int getRemainingQuota() { return remainingQuota; }
+    public boolean isExhausted() { return remainingQuota <= 0; }
+    public boolean isAnySuccess() { return anySuccess; }
+    public boolean isAnyFull() { return anyFull; }
+
+    /** 登记成功放入背包的物品数量，扣除配额 */
+    public void consume(int amount) {
+        if (amount <= 0) return;
+        remainingQuota -= amount;
+        anySuccess = true;
+    }
+
+    /** 登记背包已满 (有物品未能放入) */
+    public void markFull() {
+        anyFull = true;
+    }
+}
@@ -0,0 +1,24 @@
+package com.mohuia.better_looting.mixin;
+
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.entity.projectile.AbstractArrow;
+import net.minecraft.world.item.ItemStack;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+import org.spongepowered.asm.mixin.gen.Invoker;
+
+/**
+ * 访问 {@link AbstractArrow} 的受保护成员，供 {@link com.mohuia.better_looting.loot.ArrowLootProvider} 使用.
+ */
+@Mixin(AbstractArrow.class)
+public interface AbstractArrowAccessor {
+
+    @Accessor("inGround")
+    boolean betterLooting$isInGround();
+
+    @Invoker("getPickupItem")
+    ItemStack betterLooting$getPickupItem();
+
+    @Invoker("tryPickup")
+    boolean betterLooting$tryPickup(Player player);
+}
@@ -0,0 +1,31 @@
+package com.mohuia.better_looting.mixin;
+
+import com.mohuia.better_looting.client.core.MovementHook;
+import net.minecraft.world.entity.Entity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * 实体坐标变化时通知 {@link com.mohuia.better_looting.client.core.EntityTracker}.
+ */
+@Mixin(Entity.class)
+public abstract class MixinEntity implements MovementHook {
+
+    // 不写初始化表达式：Entity 构造函数中就会调用 setPosRaw
+    @Unique
+    private Runnable betterLooting$moveListener;
+
+    @Override
+    public void betterLooting$setMoveListener(Runnable listener) {
+        this.betterLooting$moveListener = listener;
+    }
+
+    @Inject(method = "setPosRaw", at = @At("TAIL"))
+    private void betterLooting$onSetPos(double x, double y, double z, CallbackInfo ci) {
+        Runnable listener = this.betterLooting$moveListener;
+        if (listener != null) listener.run();
+    }
+}
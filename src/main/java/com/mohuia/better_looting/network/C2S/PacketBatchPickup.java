@@ -1,99 +1,127 @@
 package com.mohuia.better_looting.network.C2S;
 
+import com.mohuia.better_looting.loot.LootProvider;
+import com.mohuia.better_looting.loot.LootProviders;
+import com.mohuia.better_looting.loot.PickupSession;
+import com.mohuia.better_looting.network.NetworkHandler;
+import com.mohuia.better_looting.network.S2C.PacketPickupAck;
+import io.netty.handler.codec.DecoderException;
 import net.minecraft.ChatFormatting;
-import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.sounds.SoundEvents;
 import net.minecraft.sounds.SoundSource;
 import net.minecraft.world.entity.Entity;
-import net.minecraft.world.entity.item.ItemEntity;
-import net.minecraft.world.entity.player.Player;
-import net.minecraft.world.item.ItemStack;
 import net.minecraftforge.network.NetworkEvent;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Field;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.function.Supplier;
 
 /**
- * 批量拾取物品数据包 (C2S: Client to Server).
+ * 批量拾取数据包 (C2S: Client to Server).
  * <p>
- * 客户端发送欲拾取的物品实体 ID 列表，服务端验证并执行拾取逻辑。
- * 包含针对大量物品拾取的性能优化（反射读取 pickupDelay）。
+ * 客户端按实体类型标签 ({@link LootProvider#getId()}) 分段发送欲拾取的实体 ID，每段带有独立的拾取配额，
+ * 服务端按标签找到对应的 {@link LootProvider}，验证后由提供者执行拾取。
+ * 批量拾取每种类型一段、不限数量；单次拾取与多选拾取每个条目一段，各自最多拾取一组 ({@link #STACK_QUOTA})。
+ * 未知的类型标签 (另一端缺少对应模组) 整段忽略。
+ * 实体 ID 以基本类型数组分段存放 (类型标签数组 + 段结束位置 + ID 数组)，编解码均不装箱。
+ * 处理完成后服务端回复 {@link PacketPickupAck}，列出请求中仍然留在世界中的实体，客户端据此回滚乐观隐藏的条目。
  */
 public class PacketBatchPickup {
-    private static final Logger LOGGER = LoggerFactory.getLogger(PacketBatchPickup.class);
 
-    // =========================================
-    //            反射缓存字段
-    // =========================================
-
-    private static Field PICKUP_DELAY_FIELD;
-    private static boolean reflectionFailed = false;
-
-    /*
-     * 静态初始化块：预先查找 ItemEntity 的 pickupDelay 字段。
-     * 相比于 NBT 序列化检查，反射读取 int 字段在大量物品场景下性能提升显著。
-     */
-    static {
-        try {
-            // 1. 尝试开发环境映射 (MojMap/Official)
-            PICKUP_DELAY_FIELD = ItemEntity.class.getDeclaredField("pickupDelay");
-            PICKUP_DELAY_FIELD.setAccessible(true);
-        } catch (NoSuchFieldException e) {
-            try {
-                // 2. 尝试生产环境混淆名 (SRG Name)
-                // 注意：field_70292_b 是 1.20.1 对应的 SRG 字段名，若映射表更新需核对
-                PICKUP_DELAY_FIELD = ItemEntity.class.getDeclaredField("field_70292_b");
-                PICKUP_DELAY_FIELD.setAccessible(true);
-            } catch (NoSuchFieldException ex) {
-                LOGGER.error("BetterLooting: 无法通过反射找到 pickupDelay 字段，将回退到 NBT 检查模式。", ex);
-                reflectionFailed = true;
-            }
-        }
-    }
+    /** 服务端允许的最大拾取距离 (方块)，客户端收集者模式的半径上限同样取此值 */
+    public static final double MAX_PICKUP_DISTANCE = 8.0;
+    /** 单次拾取每段的配额 (一组) */
+    public static final int STACK_QUOTA = 64;
+    /** 配额值：不限数量 */
+    public static final int UNLIMITED = 0;
+    /** 每段编码后至少占用的字节数 (类型标签长度与至少一个字符、配额、ID 数量)，解码时据此限制段数 */
+    private static final int MIN_SEGMENT_BYTES = 4;
 
     // =========================================
     //            数据包结构
     // =========================================
 
-    private final List<Integer> entityIds;
+    /** 请求序号，在确认中原样返回 */
+    private final int requestId;
+    /** 第 s 段的类型标签 */
+    private final ResourceLocation[] types;
+    /** 第 s 段的拾取配额，{@link #UNLIMITED} 表示不限 */
+    private final int[] quotas;
+    /** 第 s 段在 ids 中的结束位置 (不含)，起始位置为上一段的结束位置 */
+    private final int[] segmentEnds;
+    private final int segmentCount;
+    /** 实体 ID (段内保持客户端给出的顺序，同一条目的实体由近到远) */
+    private final int[] ids;
     private final boolean isAuto;         // 是否为自动拾取（非手动按键触发）
-    private final boolean limitToMaxStack; // 是否限制单次拾取量（如仅拾取一组）
 
-    public PacketBatchPickup(List<Integer> entityIds, boolean isAuto, boolean limitToMaxStack) {
-        this.entityIds = entityIds;
+    /**
+     * 客户端构造函数.
+     * 数组可以是调用方复用的缓冲区 (只读取前 segmentCount 段)：数据包在发送时立即编码，不会保留引用。
+     */
+    public PacketBatchPickup(int requestId, ResourceLocation[] types, int[] quotas, int[] segmentEnds, int segmentCount,
+                             int[] ids, boolean isAuto) {
+        this.requestId = requestId;
+        this.types = types;
+        this.quotas = quotas;
+        this.segmentEnds = segmentEnds;
+        this.segmentCount = segmentCount;
+        this.ids = ids;
         this.isAuto = isAuto;
-        this.limitToMaxStack = limitToMaxStack;
     }
 
     /**
      * 解码构造函数 (从 ByteBuf 读取数据).
+     * 段数与每段 ID 数量由客户端给出，超过剩余字节所能容纳的数量时视为畸形数据包，拒绝解码而不是按其分配数组。
      */
     public PacketBatchPickup(FriendlyByteBuf buf) {
+        this.requestId = buf.readVarInt();
         this.isAuto = buf.readBoolean();
-        this.limitToMaxStack = buf.readBoolean();
-        int count = buf.readVarInt();
-        this.entityIds = new ArrayList<>(count);
-        for (int i = 0; i < count; i++) {
-            this.entityIds.add(buf.readInt());
+        this.segmentCount = buf.readVarInt();
+        if (segmentCount < 0 || segmentCount > buf.readableBytes() / MIN_SEGMENT_BYTES) {
+            throw new DecoderException("Invalid pickup segment count: " + segmentCount);
         }
+        this.types = new ResourceLocation[segmentCount];
+        this.quotas = new int[segmentCount];
+        this.segmentEnds = new int[segmentCount];
+        int[] ids = new int[16];
+        int total = 0;
+        for (int s = 0; s < segmentCount; s++) {
+            types[s] = buf.readResourceLocation();
+            quotas[s] = buf.readVarInt();
+            int count = buf.readVarInt();
+            if (count < 0 || count > buf.readableBytes() / Integer.BYTES) {
+                throw new DecoderException("Invalid pickup segment size: " + count);
+            }
+            // 长度由客户端给出，不据此预分配，按实际读取的数量增长
+            for (int i = 0; i < count; i++) {
+                if (total == ids.length) ids = Arrays.copyOf(ids, total * 2);
+                ids[total++] = buf.readInt();
+            }
+            segmentEnds[s] = total;
+        }
+        this.ids = ids;
     }
 
     /**
      * 编码方法 (写入数据到 ByteBuf).
      */
     public void toBytes(FriendlyByteBuf buf) {
+        buf.writeVarInt(requestId);
         buf.writeBoolean(isAuto);
-        buf.writeBoolean(limitToMaxStack);
-        buf.writeVarInt(entityIds.size());
-        for (int id : entityIds) {
-            buf.writeInt(id);
+        buf.writeVarInt(segmentCount);
+        int start = 0;
+        for (int s = 0; s < segmentCount; s++) {
+            int end = segmentEnds[s];
+            buf.writeResourceLocation(types[s]);
+            buf.writeVarInt(quotas[s]);
+            buf.writeVarInt(end - start);
+            for (int i = start; i < end; i++) {
+                buf.writeInt(ids[i]);
+            }
+            start = end;
         }
     }
 
@@ -110,53 +138,59 @@ public class PacketBatchPickup {
             ServerPlayer player = ctx.get().getSender();
             if (player == null) return;
 
-            int remainingQuota = limitToMaxStack ? 64 : Integer.MAX_VALUE;
-            boolean anySuccess = false;
-            boolean anyFull = false;
+            PickupSession session = new PickupSession(player, Integer.MAX_VALUE);
 
-            for (int entityId : entityIds) {
-                if (remainingQuota <= 0) break;
+            int start = 0;
+            for (int s = 0; s < segmentCount; s++) {
+                int end = segmentEnds[s];
+                LootProvider<Entity> provider = LootProviders.get(types[s]);
+                if (provider == null) {
+                    start = end;
+                    continue;
+                }
+                session.beginSegment(quotas[s] == UNLIMITED ? Integer.MAX_VALUE : quotas[s]);
 
-                Entity target = player.level().getEntity(entityId);
+                for (int i = start; i < end; i++) {
+                    if (session.isExhausted()) break;
+                    int entityId = ids[i];
 
-                // 验证：目标必须是物品实体、存活且在玩家 8 格范围内 (8^2 = 64)
-                if (target instanceof ItemEntity itemEntity && itemEntity.isAlive() && player.distanceToSqr(target) < 64.0) {
+                    Entity target = player.level().getEntity(entityId);
 
-                    // 检查物品是否处于“捡起冷却”状态
-                    if (!canPickup(itemEntity)) {
-                        continue;
+                    // 验证：目标的实体类型必须属于该提供者、可拾取且在玩家 8 格范围内 (8^2 = 64)
+                    if (target != null && LootProviders.find(target) == provider && provider.isLootable(target)
+                            && player.distanceToSqr(target) < MAX_PICKUP_DISTANCE * MAX_PICKUP_DISTANCE) {
+                        provider.collect(target, session);
                     }
+                }
+                start = end;
+            }
 
-                    ItemStack groundStack = itemEntity.getItem();
-                    int amountToTake = Math.min(groundStack.getCount(), remainingQuota);
-
-                    // 模拟拾取：复制物品栈并尝试加入玩家背包
-                    ItemStack stackToPickup = groundStack.copy();
-                    stackToPickup.setCount(amountToTake);
-
-                    if (player.getInventory().add(stackToPickup)) {
-                        anySuccess = true;
-
-                        // 计算实际进入背包的数量（以防背包只能装下一部分）
-                        int actuallyPickedUp = amountToTake - stackToPickup.getCount();
-                        remainingQuota -= actuallyPickedUp;
-
-                        // 更新服务端数据：触发捡起统计、扣除地面物品数量
-                        player.take(itemEntity, actuallyPickedUp);
-                        groundStack.shrink(actuallyPickedUp);
-
-                        if (groundStack.isEmpty()) {
-                            itemEntity.discard(); // 物品被捡完，移除实体
-                        } else {
-                            itemEntity.setItem(groundStack); // 更新剩余数量
-                            // 如果还有剩余没捡起来（说明背包满了），标记状态
-                            if (!stackToPickup.isEmpty()) anyFull = true;
-                        }
+            // 回复确认：请求中仍然存活的实体 (未拾取或只拾取了一部分) 由客户端回滚；
+            // 服务端判定不可拾取的实体 (客户端的可拾取状态是推断的，如箭的拾取权限) 单独列出，客户端继续隐藏
+            int total = segmentCount == 0 ? 0 : segmentEnds[segmentCount - 1];
+            int[] remaining = new int[total];
+            int[] rejected = new int[total];
+            int remainingCount = 0, rejectedCount = 0;
+            start = 0;
+            for (int s = 0; s < segmentCount; s++) {
+                int end = segmentEnds[s];
+                LootProvider<Entity> provider = LootProviders.get(types[s]);
+                for (int i = start; i < end; i++) {
+                    Entity target = player.level().getEntity(ids[i]);
+                    if (target == null || !target.isAlive()) continue;
+                    if (provider != null && LootProviders.find(target) == provider && !provider.isLootable(target)) {
+                        rejected[rejectedCount++] = ids[i];
                     } else {
-                        anyFull = true; // 添加失败，背包已满
+                        remaining[remainingCount++] = ids[i];
                     }
                 }
+                start = end;
             }
+            NetworkHandler.sendToPlayer(player, new PacketPickupAck(requestId,
+                    Arrays.copyOf(remaining, remainingCount), Arrays.copyOf(rejected, rejectedCount)));
+
+            boolean anySuccess = session.isAnySuccess();
+            boolean anyFull = session.isAnyFull();
 
             // 播放音效与提示
             if (anySuccess) {
@@ -179,26 +213,4 @@ public class PacketBatchPickup {
 
         ctx.get().setPacketHandled(true);
     }
-
-    /**
-     * 检查物品是否可以被拾取 (PickupDelay <= 0).
-     * 优先使用反射直接读取字段，失败则回退到 NBT。
-     */
-    private boolean canPickup(ItemEntity itemEntity) {
-        if (reflectionFailed || PICKUP_DELAY_FIELD == null) {
-            // Fallback: 仅当反射初始化失败时，才执行较昂贵的 NBT 读写
-            CompoundTag tag = new CompoundTag();
-            itemEntity.saveWithoutId(tag);
-            return tag.getShort("PickupDelay") <= 0;
-        }
-
-        try {
-            // Fast Path: 直接内存读取 int
-            int delay = PICKUP_DELAY_FIELD.getInt(itemEntity);
-            return delay <= 0;
-        } catch (IllegalAccessException e) {
-            // 理论上 setAccessible(true) 后不会发生，但若发生则拒绝拾取以保安全
-            return false;
-        }
-    }
 }
@@ -2,10 +2,16 @@ package com.mohuia.better_looting.network;
 
 import com.mohuia.better_looting.BetterLooting;
 import com.mohuia.better_looting.network.C2S.PacketBatchPickup;
+import com.mohuia.better_looting.network.S2C.PacketPickupAck;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.network.NetworkDirection;
 import net.minecraftforge.network.NetworkRegistry;
+import net.minecraftforge.network.PacketDistributor;
 import net.minecraftforge.network.simple.SimpleChannel;
 
+import java.util.Optional;
+
 /**
  * 网络通信管理器.
  * <p>
@@ -14,7 +20,7 @@ import net.minecraftforge.network.simple.SimpleChannel;
  */
 public class NetworkHandler {
     // 协议版本号：当网络包结构发生破坏性变更时，应修改此版本号以防止版本不匹配的客户端连接
-    private static final String PROTOCOL_VERSION = "1";
+    private static final String PROTOCOL_VERSION = "5";
 
     public static final SimpleChannel INSTANCE = NetworkRegistry.newSimpleChannel(
             ResourceLocation.fromNamespaceAndPath(BetterLooting.MODID, "main"),
@@ -38,6 +44,15 @@ public class NetworkHandler {
                 PacketBatchPickup::new,     // 解码器
                 PacketBatchPickup::handle   // 处理器
         );
+
+        // 注册拾取确认包 (S2C)
+        INSTANCE.registerMessage(id++,
+                PacketPickupAck.class,
+                PacketPickupAck::toBytes,
+                PacketPickupAck::new,
+                PacketPickupAck::handle,
+                Optional.of(NetworkDirection.PLAY_TO_CLIENT)
+        );
     }
 
     /**
@@ -48,4 +63,14 @@ public class NetworkHandler {
     public static void sendToServer(Object msg) {
         INSTANCE.sendToServer(msg);
     }
+
+    /**
+     * 发送数据包到指定玩家的客户端.
+     *
+     * @param player 目标玩家
+     * @param msg 已注册的数据包实例
+     */
+    public static void sendToPlayer(ServerPlayer player, Object msg) {
+        INSTANCE.send(PacketDistributor.PLAYER.with(() -> player), msg);
+    }
 }
@@ -0,0 +1,62 @@
+package com.mohuia.better_looting.network.S2C;
+
+import com.mohuia.better_looting.client.Core;
+import com.mohuia.better_looting.network.C2S.PacketBatchPickup;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fml.DistExecutor;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+/**
+ * 拾取确认数据包 (S2C: Server to Client).
+ * <p>
+ * 服务端处理完 {@link PacketBatchPickup} 后回复，携带请求序号与请求中仍然留在世界中的实体 ID
+ * (背包已满、超出配额、校验失败或只拾取了一部分)。客户端据此结束乐观隐藏：
+ * 列出的实体立即回到列表，其余实体等待服务端的实体移除同步。
+ * 服务端判定不可拾取的实体单独列出 (客户端只能推断部分实体的可拾取状态)，客户端继续隐藏它们，避免反复回滚闪烁。
+ */
+public class PacketPickupAck {
+
+    private final int requestId;
+    /** 未被完全拾取的实体 ID */
+    private final int[] remaining;
+    /** 服务端判定不可拾取的实体 ID */
+    private final int[] rejected;
+
+    public PacketPickupAck(int requestId, int[] remaining, int[] rejected) {
+        this.requestId = requestId;
+        this.remaining = remaining;
+        this.rejected = rejected;
+    }
+
+    /**
+     * 解码构造函数 (从 ByteBuf 读取数据).
+     */
+    public PacketPickupAck(FriendlyByteBuf buf) {
+        this.requestId = buf.readVarInt();
+        this.remaining = buf.readVarIntArray();
+        this.rejected = buf.readVarIntArray();
+    }
+
+    /**
+     * 编码方法 (写入数据到 ByteBuf).
+     */
+    public void toBytes(FriendlyByteBuf buf) {
+        buf.writeVarInt(requestId);
+        buf.writeVarIntArray(remaining);
+        buf.writeVarIntArray(rejected);
+    }
+
+    /**
+     * 处理网络包逻辑 (在客户端主线程执行).
+     */
+    public void handle(Supplier<NetworkEvent.Context> ctx) {
+        ctx.get().enqueueWork(() ->
+                // 仅在客户端加载 Core，专用服务端不会触及客户端类
+                DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> Core.INSTANCE.onPickupAck(requestId, remaining, rejected))
+        );
+        ctx.get().setPacketHandled(true);
+    }
+}
@@ -0,0 +1,90 @@
+package com.mohuia.better_looting.client.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link IntMap} 的后移删除：删除探测链中间的元素后，链上其余元素仍可查到，且不留下墓碑.
+ */
+class IntMapTest {
+
+    @Test
+    void removeFromMiddleOfProbeChainKeepsLaterKeysReachable() {
+        IntMap<String> map = new IntMap<>();
+        // 选出落在同一个初始槽位的键，构造一条探测链
+        int[] chain = new int[4];
+        int home = IntMap.mix(0) & (map.capacity() - 1);
+        for (int key = 0, found = 0; found < chain.length; key++) {
+            if ((IntMap.mix(key) & (map.capacity() - 1)) == home) chain[found++] = key;
+        }
+        for (int key : chain) map.put(key, "v" + key);
+
+        assertEquals("v" + chain[1], map.remove(chain[1]));
+        assertNull(map.get(chain[1]));
+        assertEquals("v" + chain[0], map.get(chain[0]));
+        assertEquals("v" + chain[2], map.get(chain[2]));
+        assertEquals("v" + chain[3], map.get(chain[3]));
+        assertEquals(3, map.size());
+
+        // 链头被删除后，后移的元素仍在链上
+        assertEquals("v" + chain[0], map.remove(chain[0]));
+        assertEquals("v" + chain[2], map.get(chain[2]));
+        assertEquals("v" + chain[3], map.get(chain[3]));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void matchesHashMapUnderRandomChurn() {
+        IntMap<Integer> map = new IntMap<>();
+        Map<Integer, Integer> reference = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int step = 0; step < 200_000; step++) {
+            int key = random.nextInt(2048);
+            if (random.nextInt(3) == 0) {
+                assertEquals(reference.remove(key), map.remove(key));
+            } else {
+                assertEquals(reference.put(key, step), map.put(key, step));
+            }
+            assertEquals(reference.size(), map.size());
+        }
+        for (int key = 0; key < 2048; key++) {
+            assertEquals(reference.get(key), map.get(key));
+        }
+
+        int occupied = 0;
+        for (int slot = 0; slot < map.capacity(); slot++) {
+            if (map.valueAt(slot) != null) occupied++;
+        }
+        assertEquals(map.size(), occupied);
+    }
+
+    @Test
+    void frozenIndexAnswersLikeTheMap() {
+        IntMap<Integer> map = new IntMap<>();
+        for (int key = 0; key < 100; key++) map.put(key * 7, key);
+        for (int key = 0; key < 100; key += 3) map.remove(key * 7);
+
+        EntityIndex index = map.freeze(value -> value);
+        for (int key = 0; key < 700; key++) {
+            Integer value = map.get(key);
+            assertEquals(value == null ? EntityIndex.ABSENT : value, index.get(key));
+        }
+    }
+
+    @Test
+    void clearKeepsMapUsable() {
+        IntMap<String> map = new IntMap<>();
+        for (int key = 0; key < 100; key++) map.put(key, "a");
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(5));
+        map.put(5, "b");
+        assertEquals("b", map.get(5));
+    }
+}
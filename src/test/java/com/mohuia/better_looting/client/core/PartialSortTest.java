@@ -0,0 +1,93 @@
+package com.mohuia.better_looting.client.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link PartialSort} 的前缀扩展、插入排序与基本类型快速选择.
+ */
+class PartialSortTest {
+
+    private static final Comparator<Integer> ORDER = Comparator.naturalOrder();
+
+    @Test
+    void extendPrefixSortsPrefixAndPartitionsTheRest() {
+        Random random = new Random(1);
+        for (int round = 0; round < 200; round++) {
+            List<Integer> list = shuffled(random, 1 + random.nextInt(500));
+            int prefix = 0;
+            int limit = 0;
+            while (prefix < list.size()) {
+                limit += 1 + random.nextInt(40);
+                prefix = PartialSort.extendPrefix(list, prefix, limit, ORDER);
+                assertTrue(prefix >= Math.min(limit, list.size()));
+                assertPrefixInvariant(list, prefix);
+            }
+        }
+    }
+
+    @Test
+    void insertionSortReportsWhetherOrderChanged() {
+        List<Integer> sorted = new ArrayList<>(List.of(1, 2, 3, 4, 5));
+        assertFalse(PartialSort.insertionSort(sorted, ORDER));
+
+        List<Integer> nearlySorted = new ArrayList<>(List.of(1, 3, 2, 4, 5));
+        assertTrue(PartialSort.insertionSort(nearlySorted, ORDER));
+        assertEquals(List.of(1, 2, 3, 4, 5), nearlySorted);
+    }
+
+    @Test
+    void insertionSortFallsBackOnShuffledInput() {
+        List<Integer> list = shuffled(new Random(2), 2000);
+        assertTrue(PartialSort.insertionSort(list, ORDER));
+        for (int i = 0; i < list.size(); i++) assertEquals(i, list.get(i).intValue());
+    }
+
+    @Test
+    void selectSmallestMovesTheSmallestKeysToThePrefix() {
+        Random random = new Random(3);
+        for (int round = 0; round < 500; round++) {
+            int n = 1 + random.nextInt(300);
+            int k = random.nextInt(n + 1);
+            long[] keys = new long[n + 5];
+            // 含大量重复值，覆盖与枢轴相等的分区路径
+            for (int i = 0; i < keys.length; i++) keys[i] = random.nextInt(50);
+            long[] tail = Arrays.copyOfRange(keys, n, keys.length);
+            long[] expected = Arrays.copyOf(keys, n);
+            Arrays.sort(expected);
+
+            PartialSort.selectSmallest(keys, n, k);
+
+            long[] prefix = Arrays.copyOf(keys, k);
+            Arrays.sort(prefix);
+            assertArrayEquals(Arrays.copyOf(expected, k), prefix);
+            long[] all = Arrays.copyOf(keys, n);
+            Arrays.sort(all);
+            assertArrayEquals(expected, all);
+            // 只处理前 n 项
+            assertArrayEquals(tail, Arrays.copyOfRange(keys, n, keys.length));
+        }
+    }
+
+    private static List<Integer> shuffled(Random random, int size) {
+        List<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) list.add(i);
+        Collections.shuffle(list, random);
+        return list;
+    }
+
+    private static void assertPrefixInvariant(List<Integer> list, int prefix) {
+        for (int i = 1; i < prefix; i++) assertTrue(list.get(i - 1) < list.get(i));
+        if (prefix == 0 || prefix == list.size()) return;
+        int last = list.get(prefix - 1);
+        for (int i = prefix; i < list.size(); i++) assertTrue(list.get(i) > last);
+    }
+}
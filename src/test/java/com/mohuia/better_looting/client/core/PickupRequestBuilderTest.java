@@ -0,0 +1,109 @@
+package com.mohuia.better_looting.client.core;
+
+import com.mohuia.better_looting.network.C2S.PacketBatchPickup;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceLocation;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link PickupRequestBuilder} 的分段计数排序：实体按段归并，段内保持加入顺序.
+ */
+class PickupRequestBuilderTest {
+
+    private static final ResourceLocation ITEM = ResourceLocation.fromNamespaceAndPath("better_looting", "item");
+    private static final ResourceLocation ORB = ResourceLocation.fromNamespaceAndPath("better_looting", "experience_orb");
+
+    @Test
+    void unlimitedEntriesOfTheSameTypeShareOneSegmentInInsertionOrder() {
+        PickupRequestBuilder builder = new PickupRequestBuilder();
+        builder.addEntry(entry(ITEM, 10, 11), id -> true);
+        builder.addEntry(entry(ORB, 20), id -> true);
+        builder.addEntry(entry(ITEM, 12, 13), id -> true);
+
+        int[][] segments = encodeAndSplit(builder.build(7, true), 7, true,
+                new ResourceLocation[] { ITEM, ORB }, new int[] { PacketBatchPickup.UNLIMITED, PacketBatchPickup.UNLIMITED });
+        assertArrayEquals(new int[] { 10, 11, 12, 13 }, segments[0]);
+        assertArrayEquals(new int[] { 20 }, segments[1]);
+        assertArrayEquals(new int[] { 10, 11, 12, 13, 20 }, Arrays.copyOf(builder.getOrderedIds(), builder.size()));
+    }
+
+    @Test
+    void quotaEntriesGetTheirOwnSegments() {
+        PickupRequestBuilder builder = new PickupRequestBuilder();
+        builder.addEntry(entry(ITEM, 1, 2), id -> true, PacketBatchPickup.STACK_QUOTA);
+        builder.addEntry(entry(ITEM, 3), id -> true, PacketBatchPickup.STACK_QUOTA);
+        builder.addEntity(ORB, 4, PacketBatchPickup.STACK_QUOTA);
+
+        int[][] segments = encodeAndSplit(builder.build(1, false), 1, false,
+                new ResourceLocation[] { ITEM, ITEM, ORB },
+                new int[] { PacketBatchPickup.STACK_QUOTA, PacketBatchPickup.STACK_QUOTA, PacketBatchPickup.STACK_QUOTA });
+        assertArrayEquals(new int[] { 1, 2 }, segments[0]);
+        assertArrayEquals(new int[] { 3 }, segments[1]);
+        assertArrayEquals(new int[] { 4 }, segments[2]);
+    }
+
+    @Test
+    void filteredEntitiesAndEmptyEntriesAddNothing() {
+        PickupRequestBuilder builder = new PickupRequestBuilder();
+        builder.addEntry(entry(ITEM, 1, 2, 3), id -> id != 2);
+        builder.addEntry(entry(ORB, 9), id -> false);
+
+        int[][] segments = encodeAndSplit(builder.build(0, false), 0, false,
+                new ResourceLocation[] { ITEM }, new int[] { PacketBatchPickup.UNLIMITED });
+        assertArrayEquals(new int[] { 1, 3 }, segments[0]);
+        assertEquals(2, builder.size());
+    }
+
+    @Test
+    void resetAllowsReuseWithGrowingBuffers() {
+        PickupRequestBuilder builder = new PickupRequestBuilder();
+        for (int round = 0; round < 3; round++) {
+            builder.reset();
+            int count = 100 * (round + 1);
+            int[] itemIds = new int[count];
+            int[] orbIds = new int[count];
+            for (int i = 0; i < count; i++) {
+                itemIds[i] = i * 2;
+                orbIds[i] = i * 2 + 1;
+            }
+            // 交替加入两种类型，验证计数排序的稳定性
+            for (int i = 0; i < count; i++) {
+                builder.addEntity(ITEM, itemIds[i], PacketBatchPickup.UNLIMITED);
+                builder.addEntity(ORB, orbIds[i], PacketBatchPickup.UNLIMITED);
+            }
+            int[][] segments = encodeAndSplit(builder.build(round, true), round, true,
+                    new ResourceLocation[] { ITEM, ORB }, new int[] { PacketBatchPickup.UNLIMITED, PacketBatchPickup.UNLIMITED });
+            assertArrayEquals(itemIds, segments[0]);
+            assertArrayEquals(orbIds, segments[1]);
+        }
+    }
+
+    private static VisualItemEntry entry(ResourceLocation lootType, int... entityIds) {
+        return new VisualItemEntry(entityIds[0], lootType, null, entityIds, entityIds.length);
+    }
+
+    /** 编码数据包，校验头部、类型标签与配额，按段返回实体 ID */
+    private static int[][] encodeAndSplit(PacketBatchPickup packet, int requestId, boolean isAuto,
+                                          ResourceLocation[] types, int[] quotas) {
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        packet.toBytes(buf);
+
+        assertEquals(requestId, buf.readVarInt());
+        assertEquals(isAuto, buf.readBoolean());
+        assertEquals(types.length, buf.readVarInt());
+        int[][] segments = new int[types.length][];
+        for (int s = 0; s < types.length; s++) {
+            assertEquals(types[s], buf.readResourceLocation());
+            assertEquals(quotas[s], buf.readVarInt());
+            segments[s] = new int[buf.readVarInt()];
+            for (int i = 0; i < segments[s].length; i++) segments[s][i] = buf.readInt();
+        }
+        assertEquals(0, buf.readableBytes());
+        return segments;
+    }
+}
@@ -0,0 +1,78 @@
+package com.mohuia.better_looting.client.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link ScanDelta#merge}：两次连续增量合并后等价于一次完成两步变化.
+ */
+class ScanDeltaTest {
+
+    @Test
+    void emptySideReturnsTheOther() {
+        ScanDelta delta = new ScanDelta(List.of(entry(1)), List.of(), List.of());
+        assertSame(delta, ScanDelta.merge(ScanDelta.EMPTY, delta));
+        assertSame(delta, ScanDelta.merge(delta, ScanDelta.EMPTY));
+    }
+
+    @Test
+    void addedThenRemovedDisappears() {
+        VisualItemEntry added = entry(1);
+        ScanDelta merged = ScanDelta.merge(
+                new ScanDelta(List.of(added), List.of(), List.of()),
+                new ScanDelta(List.of(), List.of(added), List.of()));
+        assertTrue(merged.isEmpty());
+    }
+
+    @Test
+    void addedThenChangedIsReportedAsAddedWithTheLatestInstance() {
+        VisualItemEntry first = entry(1);
+        VisualItemEntry latest = entry(1);
+        ScanDelta merged = ScanDelta.merge(
+                new ScanDelta(List.of(first), List.of(), List.of()),
+                new ScanDelta(List.of(), List.of(), List.of(latest)));
+        assertEquals(List.of(latest), merged.getAdded());
+        assertTrue(merged.getChanged().isEmpty());
+        assertTrue(merged.getRemoved().isEmpty());
+    }
+
+    @Test
+    void changedTwiceKeepsOnlyTheLatestInstance() {
+        VisualItemEntry first = entry(2);
+        VisualItemEntry latest = entry(2);
+        ScanDelta merged = ScanDelta.merge(
+                new ScanDelta(List.of(), List.of(), List.of(first)),
+                new ScanDelta(List.of(), List.of(), List.of(latest)));
+        assertEquals(List.of(latest), merged.getChanged());
+    }
+
+    @Test
+    void changedThenRemovedIsReportedOnlyAsRemoved() {
+        VisualItemEntry changed = entry(3);
+        ScanDelta merged = ScanDelta.merge(
+                new ScanDelta(List.of(), List.of(), List.of(changed)),
+                new ScanDelta(List.of(), List.of(changed), List.of()));
+        assertEquals(List.of(changed), merged.getRemoved());
+        assertTrue(merged.getChanged().isEmpty());
+        assertTrue(merged.isMembershipChanged());
+    }
+
+    @Test
+    void removalsFromBothStepsAreKept() {
+        VisualItemEntry older = entry(4);
+        VisualItemEntry newer = entry(5);
+        VisualItemEntry added = entry(6);
+        ScanDelta merged = ScanDelta.merge(
+                new ScanDelta(List.of(), List.of(older), List.of()),
+                new ScanDelta(List.of(added), List.of(newer), List.of()));
+        assertEquals(List.of(older, newer), merged.getRemoved());
+        assertEquals(List.of(added), merged.getAdded());
+    }
+
+    private static VisualItemEntry entry(int entryId) {
+        return new VisualItemEntry(entryId, null, null, new int[] { entryId }, 1);
+    }
+}
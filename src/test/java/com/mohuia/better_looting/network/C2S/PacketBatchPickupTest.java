@@ -0,0 +1,103 @@
+package com.mohuia.better_looting.network.C2S;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DecoderException;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceLocation;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link PacketBatchPickup} 解码时的长度校验：客户端给出的段数与 ID 数量超过剩余字节时拒绝解码.
+ */
+class PacketBatchPickupTest {
+
+    private static final ResourceLocation ITEM = ResourceLocation.fromNamespaceAndPath("better_looting", "item");
+
+    @Test
+    void roundTripPreservesTheEncoding() {
+        PacketBatchPickup packet = new PacketBatchPickup(5, new ResourceLocation[] { ITEM, ITEM },
+                new int[] { PacketBatchPickup.UNLIMITED, PacketBatchPickup.STACK_QUOTA }, new int[] { 2, 3 }, 2,
+                new int[] { 100, 101, 102 }, true);
+        FriendlyByteBuf encoded = encode(packet);
+        byte[] expected = readAll(encoded.copy());
+
+        PacketBatchPickup decoded = new PacketBatchPickup(encoded);
+        assertEquals(0, encoded.readableBytes());
+        assertArrayEquals(expected, readAll(encode(decoded)));
+    }
+
+    @Test
+    void emptyRequestDecodes() {
+        FriendlyByteBuf buf = header(0);
+        assertDoesNotThrow(() -> new PacketBatchPickup(buf));
+    }
+
+    @Test
+    void rejectsSegmentCountBeyondRemainingBytes() {
+        FriendlyByteBuf buf = header(1_000_000);
+        buf.writeResourceLocation(ITEM);
+        buf.writeVarInt(PacketBatchPickup.UNLIMITED);
+        buf.writeVarInt(0);
+        assertThrows(DecoderException.class, () -> new PacketBatchPickup(buf));
+    }
+
+    @Test
+    void rejectsNegativeSegmentCount() {
+        FriendlyByteBuf buf = header(-1);
+        assertThrows(DecoderException.class, () -> new PacketBatchPickup(buf));
+    }
+
+    @Test
+    void rejectsIdCountBeyondRemainingBytes() {
+        FriendlyByteBuf buf = header(1);
+        buf.writeResourceLocation(ITEM);
+        buf.writeVarInt(PacketBatchPickup.UNLIMITED);
+        buf.writeVarInt(Integer.MAX_VALUE);
+        buf.writeInt(42);
+        assertThrows(DecoderException.class, () -> new PacketBatchPickup(buf));
+    }
+
+    @Test
+    void rejectsNegativeIdCount() {
+        FriendlyByteBuf buf = header(1);
+        buf.writeResourceLocation(ITEM);
+        buf.writeVarInt(PacketBatchPickup.UNLIMITED);
+        buf.writeVarInt(-5);
+        buf.writeInt(42);
+        assertThrows(DecoderException.class, () -> new PacketBatchPickup(buf));
+    }
+
+    @Test
+    void acceptsIdCountThatExactlyFillsTheBuffer() {
+        FriendlyByteBuf buf = header(1);
+        buf.writeResourceLocation(ITEM);
+        buf.writeVarInt(PacketBatchPickup.UNLIMITED);
+        buf.writeVarInt(2);
+        buf.writeInt(1);
+        buf.writeInt(2);
+        new PacketBatchPickup(buf);
+        assertEquals(0, buf.readableBytes());
+    }
+
+    private static FriendlyByteBuf header(int segmentCount) {
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        buf.writeVarInt(1);
+        buf.writeBoolean(false);
+        buf.writeVarInt(segmentCount);
+        return buf;
+    }
+
+    private static FriendlyByteBuf encode(PacketBatchPickup packet) {
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        packet.toBytes(buf);
+        return buf;
+    }
+
+    private static byte[] readAll(FriendlyByteBuf buf) {
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.readBytes(bytes);
+        return bytes;
+    }
+}